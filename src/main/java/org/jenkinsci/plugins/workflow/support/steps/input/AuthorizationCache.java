@@ -0,0 +1,73 @@
+package org.jenkinsci.plugins.workflow.support.steps.input;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import hudson.security.AccessControlled;
+import hudson.security.Permission;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import jenkins.model.Jenkins;
+import org.kohsuke.stapler.Stapler;
+import org.kohsuke.stapler.StaplerRequest2;
+import org.springframework.security.core.Authentication;
+
+/**
+ * Remembers the outcome of authorization checks for one user during one request,
+ * so that handling many inputs at once, as {@link BulkSettlement} does, evaluates each distinct check only once.
+ * Outside of a request nothing is remembered.
+ */
+final class AuthorizationCache {
+
+    private static final String ATTRIBUTE = AuthorizationCache.class.getName();
+
+    private final Authentication authentication;
+    private final boolean useSecurity;
+    private final Map<AccessControlled, Map<Permission, Boolean>> permissions = new ConcurrentHashMap<>();
+    /** Outcomes of {@link SubmitterMatcher#matches} by {@link InputStep#getSubmitter}. */
+    private final Map<String, Boolean> submitters = new ConcurrentHashMap<>();
+
+    AuthorizationCache(@NonNull Authentication authentication) {
+        this.authentication = authentication;
+        this.useSecurity = Jenkins.get().isUseSecurity();
+    }
+
+    /**
+     * The cache of the current user for the current request, or a new one if there is no request.
+     */
+    @NonNull
+    static AuthorizationCache get() {
+        Authentication a = Jenkins.getAuthentication2();
+        StaplerRequest2 req = Stapler.getCurrentRequest2();
+        if (req == null) {
+            return new AuthorizationCache(a);
+        }
+        @SuppressWarnings("unchecked")
+        Map<Authentication, AuthorizationCache> caches = (Map<Authentication, AuthorizationCache>) req.getAttribute(ATTRIBUTE);
+        if (caches == null) {
+            caches = new ConcurrentHashMap<>();
+            req.setAttribute(ATTRIBUTE, caches);
+        }
+        return caches.computeIfAbsent(a, AuthorizationCache::new);
+    }
+
+    /**
+     * @see Jenkins#isUseSecurity
+     */
+    boolean isUseSecurity() {
+        return useSecurity;
+    }
+
+    /**
+     * @see AccessControlled#hasPermission2
+     */
+    boolean hasPermission(@NonNull AccessControlled object, @NonNull Permission permission) {
+        return permissions.computeIfAbsent(object, k -> new ConcurrentHashMap<>())
+                .computeIfAbsent(permission, p -> object.hasPermission2(authentication, p));
+    }
+
+    /**
+     * Whether the user is named, directly or by group, among the submitters of an input.
+     */
+    boolean isSubmitter(@NonNull String submitter, @NonNull SubmitterMatcher matcher) {
+        return submitters.computeIfAbsent(submitter, k -> matcher.matches(authentication));
+    }
+}
@@ -0,0 +1,209 @@
+package org.jenkinsci.plugins.workflow.support.steps.input;
+
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Pattern;
+import net.sf.json.JSONArray;
+import net.sf.json.JSONObject;
+import org.kohsuke.stapler.export.Exported;
+import org.kohsuke.stapler.export.ExportedBean;
+
+/**
+ * Approves an input automatically when it is reached, if the build matches.
+ * For example, {@code {"id": "staging-on-main", "input": "Deploy-Staging", "job": "services/*", "branch": "main",
+ * "freezes": [{"start": "2026-12-20T00:00:00Z", "end": "2027-01-04T00:00:00Z"}]}}
+ * approves the input with ID {@code Deploy-Staging} in any job directly in the {@code services} folder,
+ * for builds of the {@code main} branch, except during the freeze.
+ * <p>
+ * In {@link #getJob} and {@link #getBranch}, {@code *} matches anything but {@code /}, and {@code **} matches anything.
+ * Parameters take their default values.
+ * @see AutoApprovalRules
+ */
+@ExportedBean(defaultVisibility = 2)
+public final class AutoApprovalRule {
+
+    /** Prefix of {@link InputSubmittedAction#getApprover} for inputs approved by a rule. */
+    static final String APPROVER_PREFIX = "rule:";
+
+    private final String id;
+    private final String input;
+    private final String job;
+    private final String branch;
+    private final ArrayList<FreezeWindow> freezes;
+
+    private transient Pattern jobPattern;
+    private transient Pattern branchPattern;
+
+    @ExportedBean(defaultVisibility = 3)
+    public static final class FreezeWindow {
+        private final long start;
+        private final long end;
+
+        FreezeWindow(long start, long end) {
+            this.start = start;
+            this.end = end;
+        }
+
+        @Exported
+        public String getStart() {
+            return Instant.ofEpochMilli(start).toString();
+        }
+
+        @Exported
+        public String getEnd() {
+            return Instant.ofEpochMilli(end).toString();
+        }
+
+        boolean contains(long time) {
+            return start <= time && time < end;
+        }
+    }
+
+    AutoApprovalRule(@NonNull String id, @NonNull String input, @NonNull String job, @CheckForNull String branch, @NonNull List<FreezeWindow> freezes) {
+        this.id = id;
+        this.input = input;
+        this.job = job;
+        this.branch = branch;
+        this.freezes = new ArrayList<>(freezes);
+        compile();
+    }
+
+    /**
+     * Reads a rule in the form shown above.
+     * @throws IllegalArgumentException if it is invalid
+     */
+    static AutoApprovalRule fromJSON(@NonNull JSONObject json) {
+        String id = json.optString("id", "").trim();
+        String input = json.optString("input", "").trim();
+        if (id.isEmpty() || input.isEmpty()) {
+            throw new IllegalArgumentException("Both id and input are required");
+        }
+        String job = json.optString("job", "**").trim();
+        String branch = json.optString("branch", null);
+        List<FreezeWindow> freezes = new ArrayList<>();
+        JSONArray windows = json.optJSONArray("freezes");
+        if (windows != null) {
+            for (Object o : windows) {
+                JSONObject window = JSONObject.fromObject(o);
+                long start, end;
+                try {
+                    start = Instant.parse(window.getString("start")).toEpochMilli();
+                    end = Instant.parse(window.getString("end")).toEpochMilli();
+                } catch (RuntimeException x) { // DateTimeParseException or JSONException
+                    throw new IllegalArgumentException("Invalid freeze window in rule " + id + ": " + window, x);
+                }
+                if (start >= end) {
+                    throw new IllegalArgumentException("Freeze window ends before it starts in rule " + id + ": " + window);
+                }
+                freezes.add(new FreezeWindow(start, end));
+            }
+        }
+        return new AutoApprovalRule(id, input, job.isEmpty() ? "**" : job, branch == null || branch.isBlank() ? null : branch.trim(), freezes);
+    }
+
+    private Object readResolve() {
+        compile();
+        return this;
+    }
+
+    private void compile() {
+        jobPattern = isPattern(job) ? glob(job) : null;
+        branchPattern = branch != null ? glob(branch) : null;
+    }
+
+    static boolean isPattern(String glob) {
+        return glob.indexOf('*') >= 0;
+    }
+
+    private static Pattern glob(String glob) {
+        StringBuilder regex = new StringBuilder();
+        int literal = 0;
+        for (int i = 0; i < glob.length(); i++) {
+            if (glob.charAt(i) != '*') {
+                continue;
+            }
+            regex.append(Pattern.quote(glob.substring(literal, i)));
+            if (i + 1 < glob.length() && glob.charAt(i + 1) == '*') {
+                regex.append(".*");
+                i++;
+            } else {
+                regex.append("[^/]*");
+            }
+            literal = i + 1;
+        }
+        regex.append(Pattern.quote(glob.substring(literal)));
+        return Pattern.compile(regex.toString());
+    }
+
+    /**
+     * Identifies this rule, and is recorded as the approver, after {@link #APPROVER_PREFIX}, of inputs it approves.
+     */
+    @Exported
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * @see InputStep#getId
+     */
+    @Exported
+    public String getInput() {
+        return input;
+    }
+
+    /**
+     * Full name of the job, or a pattern.
+     */
+    @Exported
+    public String getJob() {
+        return job;
+    }
+
+    /**
+     * Branch name, or a pattern, to be matched against the branch the job builds in its multibranch project (never {@code BRANCH_NAME}, which the build may set); null for any build, whether of a branch or not.
+     */
+    @Exported
+    @CheckForNull
+    public String getBranch() {
+        return branch;
+    }
+
+    /**
+     * Periods during which this rule does not apply.
+     */
+    @Exported(inline = true)
+    public List<FreezeWindow> getFreezes() {
+        return Collections.unmodifiableList(freezes);
+    }
+
+    /**
+     * Whether {@link #getJob} matches, assuming the input ID has been matched already.
+     */
+    boolean matchesJob(@NonNull String jobName) {
+        return jobPattern != null ? jobPattern.matcher(jobName).matches() : job.equals(jobName);
+    }
+
+    /**
+     * Whether this rule applies, assuming the input ID and job have been matched already.
+     */
+    boolean matches(@CheckForNull String branchName, long time) {
+        if (branchPattern != null && (branchName == null || !branchPattern.matcher(branchName).matches())) {
+            return false;
+        }
+        for (FreezeWindow freeze : freezes) {
+            if (freeze.contains(time)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        return id;
+    }
+}
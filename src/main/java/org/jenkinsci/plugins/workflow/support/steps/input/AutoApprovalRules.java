@@ -0,0 +1,225 @@
+package org.jenkinsci.plugins.workflow.support.steps.input;
+
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import hudson.BulkChange;
+import hudson.Extension;
+import hudson.ExtensionList;
+import hudson.XmlFile;
+import hudson.model.Api;
+import hudson.model.Saveable;
+import hudson.model.listeners.SaveableListener;
+import hudson.util.HttpResponses;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+import jenkins.model.Jenkins;
+import net.sf.json.JSONArray;
+import net.sf.json.JSONException;
+import net.sf.json.JSONObject;
+import org.kohsuke.accmod.Restricted;
+import org.kohsuke.accmod.restrictions.NoExternalUse;
+import org.kohsuke.stapler.HttpResponse;
+import org.kohsuke.stapler.StaplerRequest2;
+import org.kohsuke.stapler.export.Exported;
+import org.kohsuke.stapler.export.ExportedBean;
+import org.kohsuke.stapler.interceptor.RequirePOST;
+
+/**
+ * {@link AutoApprovalRule}s, evaluated in order whenever an input step starts; the first matching rule approves the input.
+ * Configured by administrators at {@code /pendingInputs/autoApprovalRules/}: {@code api/json} lists the rules,
+ * and {@code configure} replaces them all with those of a JSON body like {@code {"rules": [...]}}.
+ * Persisted in {@code JENKINS_HOME}.
+ * <p>
+ * Rules are indexed by input ID, then by job for those naming a job exactly,
+ * so that an input step only ever considers the rules for its ID; those with a pattern of jobs
+ * are still tried one by one, so finding them takes time linear in their number for that ID.
+ */
+@Extension
+@ExportedBean
+@Restricted(NoExternalUse.class)
+public final class AutoApprovalRules implements Saveable {
+
+    private static final Logger LOGGER = Logger.getLogger(AutoApprovalRules.class.getName());
+
+    private List<AutoApprovalRule> rules = new ArrayList<>();
+    private transient volatile Index index = new Index(List.of());
+
+    public AutoApprovalRules() {
+        load();
+    }
+
+    @NonNull
+    static AutoApprovalRules get() {
+        return ExtensionList.lookupSingleton(AutoApprovalRules.class);
+    }
+
+    private static XmlFile getConfigFile() {
+        return new XmlFile(Jenkins.XSTREAM2, new File(Jenkins.get().getRootDir(), AutoApprovalRules.class.getName() + ".xml"));
+    }
+
+    private synchronized void load() {
+        XmlFile file = getConfigFile();
+        if (file.exists()) {
+            try {
+                file.unmarshal(this);
+            } catch (IOException x) {
+                LOGGER.log(Level.WARNING, "failed to load " + file, x);
+            }
+        }
+        index = new Index(rules);
+    }
+
+    @Override
+    public synchronized void save() throws IOException {
+        if (BulkChange.contains(this)) {
+            return;
+        }
+        XmlFile file = getConfigFile();
+        file.write(this);
+        SaveableListener.fireOnChange(this, file);
+    }
+
+    synchronized void setRules(@NonNull List<AutoApprovalRule> rules) throws IOException {
+        Set<String> ids = new HashSet<>();
+        for (AutoApprovalRule rule : rules) {
+            if (!ids.add(rule.getId())) {
+                throw new IllegalArgumentException("Duplicate rule id: " + rule.getId());
+            }
+        }
+        this.rules = new ArrayList<>(rules);
+        index = new Index(this.rules);
+        save();
+    }
+
+    /**
+     * Finds the rules which could approve an input, in order, before looking at the build any further.
+     * @see #first
+     */
+    @NonNull
+    List<AutoApprovalRule> candidates(@NonNull String job, @NonNull String input) {
+        return index.candidates(job, input);
+    }
+
+    /**
+     * Finds the first of some {@link #candidates} approving an input.
+     * @param branch the branch built by the job, as found by {@link BranchNames}, if any; needed only if some candidate has {@link AutoApprovalRule#getBranch}
+     */
+    @CheckForNull
+    static AutoApprovalRule first(@NonNull List<AutoApprovalRule> candidates, @CheckForNull String branch, long time) {
+        for (AutoApprovalRule rule : candidates) {
+            if (rule.matches(branch, time)) {
+                return rule;
+            }
+        }
+        return null;
+    }
+
+    @Exported(inline = true)
+    public synchronized List<AutoApprovalRule> getRules() {
+        return Collections.unmodifiableList(new ArrayList<>(rules));
+    }
+
+    public Api getApi() {
+        Jenkins.get().checkPermission(Jenkins.ADMINISTER);
+        return new Api(this);
+    }
+
+    @RequirePOST
+    public HttpResponse doConfigure(StaplerRequest2 req) throws IOException {
+        Jenkins.get().checkPermission(Jenkins.ADMINISTER);
+        JSONArray array;
+        try {
+            array = JSONObject.fromObject(req.getReader().lines().collect(Collectors.joining("\n"))).optJSONArray("rules");
+        } catch (JSONException x) {
+            return HttpResponses.errorJSON("malformed request: " + x.getMessage());
+        }
+        if (array == null) {
+            return HttpResponses.errorJSON("expected a list of rules");
+        }
+        try {
+            List<AutoApprovalRule> parsed = new ArrayList<>();
+            for (Object o : array) {
+                parsed.add(AutoApprovalRule.fromJSON(JSONObject.fromObject(o)));
+            }
+            setRules(parsed);
+        } catch (IllegalArgumentException x) {
+            return HttpResponses.errorJSON(x.getMessage());
+        }
+        return HttpResponses.okJSON();
+    }
+
+    /**
+     * Immutable index of rules, replaced whenever they change.
+     */
+    static final class Index {
+
+        private static final class Entry {
+            final AutoApprovalRule rule;
+            final int order;
+
+            Entry(AutoApprovalRule rule, int order) {
+                this.rule = rule;
+                this.order = order;
+            }
+        }
+
+        /** Rules naming a job exactly, by input ID and job, each list in order. */
+        private final Map<String, Map<String, List<Entry>>> exact = new HashMap<>();
+        /** Rules with a pattern of jobs, by input ID, each list in order. */
+        private final Map<String, List<Entry>> patterned = new HashMap<>();
+
+        Index(@NonNull List<AutoApprovalRule> rules) {
+            for (int i = 0; i < rules.size(); i++) {
+                AutoApprovalRule rule = rules.get(i);
+                Entry entry = new Entry(rule, i);
+                if (AutoApprovalRule.isPattern(rule.getJob())) {
+                    patterned.computeIfAbsent(rule.getInput(), k -> new ArrayList<>()).add(entry);
+                } else {
+                    exact.computeIfAbsent(rule.getInput(), k -> new HashMap<>()).computeIfAbsent(rule.getJob(), k -> new ArrayList<>()).add(entry);
+                }
+            }
+        }
+
+        @CheckForNull
+        AutoApprovalRule match(@NonNull String job, @NonNull String input, @CheckForNull String branch, long time) {
+            return first(candidates(job, input), branch, time);
+        }
+
+        /**
+         * Rules for this input ID and job, in order: those naming the job exactly, merged with those whose pattern matches it.
+         */
+        @NonNull
+        List<AutoApprovalRule> candidates(@NonNull String job, @NonNull String input) {
+            List<Entry> named = exact.getOrDefault(input, Map.of()).getOrDefault(job, List.of());
+            List<Entry> matching = patterned.getOrDefault(input, List.of());
+            if (named.isEmpty() && matching.isEmpty()) {
+                return List.of();
+            }
+            List<AutoApprovalRule> candidates = new ArrayList<>();
+            int i = 0;
+            for (Entry entry : matching) {
+                if (!entry.rule.matchesJob(job)) {
+                    continue;
+                }
+                while (i < named.size() && named.get(i).order < entry.order) {
+                    candidates.add(named.get(i++).rule);
+                }
+                candidates.add(entry.rule);
+            }
+            while (i < named.size()) {
+                candidates.add(named.get(i++).rule);
+            }
+            return candidates;
+        }
+    }
+}
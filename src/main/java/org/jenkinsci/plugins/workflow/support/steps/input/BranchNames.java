@@ -0,0 +1,36 @@
+package org.jenkinsci.plugins.workflow.support.steps.input;
+
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import hudson.PluginWrapper;
+import hudson.model.Job;
+import jenkins.branch.BranchJobProperty;
+import jenkins.model.Jenkins;
+
+/**
+ * Finds the branch a job builds, as configured by its multibranch project, for {@link AutoApprovalRule#getBranch}.
+ * Not {@code BRANCH_NAME} from the environment of the build, which the Pipeline script itself may set to anything.
+ * The branch API plugin is optional; without it no job builds a branch.
+ */
+final class BranchNames {
+
+    private BranchNames() {}
+
+    @CheckForNull
+    static String of(@NonNull Job<?, ?> job) {
+        PluginWrapper plugin = Jenkins.get().getPluginManager().getPlugin("branch-api");
+        if (plugin == null || !plugin.isActive()) {
+            return null;
+        }
+        return BranchApi.of(job);
+    }
+
+    /** Refers to the optional plugin, so only loaded once it is known to be there. */
+    private static final class BranchApi {
+        @CheckForNull
+        static String of(Job<?, ?> job) {
+            BranchJobProperty property = job.getProperty(BranchJobProperty.class);
+            return property != null ? property.getBranch().getName() : null;
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package org.jenkinsci.plugins.workflow.support.steps.input;
+
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import hudson.model.Failure;
+import hudson.model.Run;
+import jakarta.servlet.ServletException;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeoutException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import net.sf.json.JSONArray;
+import net.sf.json.JSONObject;
+import org.kohsuke.stapler.StaplerRequest2;
+
+/**
+ * Approves or rejects many pending inputs in one request, as the current user.
+ * Each item is checked exactly as by {@code input/<id>/proceed} or {@code input/<id>/abort},
+ * and likewise settles the whole {@link InputStep#getGroup} of its input, if any;
+ * then each build is saved once for all of its settled items.
+ * <p>
+ * Items look like {@code {"run": "folder/job#12", "id": "Deploy", "action": "proceed", "parameter": [{"name": "x", "value": "y"}]}},
+ * where {@code action} is {@code proceed} or {@code abort}, and {@code parameter} takes the form submitted to {@code proceed}.
+ * The result has one entry per item, in the same order, with {@code result} being {@code ok} or {@code error},
+ * and a {@code message} in case of error.
+ */
+final class BulkSettlement {
+
+    private static final Logger LOGGER = Logger.getLogger(BulkSettlement.class.getName());
+
+    private final StaplerRequest2 request;
+    private final List<JSONObject> results = new ArrayList<>();
+    /** Settled items by the action of their build. */
+    private final Map<InputAction, Map<InputStepExecution, Item>> settled = new LinkedHashMap<>();
+
+    private static final class Item {
+        final JSONObject result;
+        final InputSubmittedAction submitted;
+
+        Item(JSONObject result, @CheckForNull InputSubmittedAction submitted) {
+            this.result = result;
+            this.submitted = submitted;
+        }
+    }
+
+    BulkSettlement(StaplerRequest2 request) {
+        this.request = request;
+    }
+
+    JSONArray settle(JSONArray items) throws InterruptedException {
+        try {
+            for (Object o : items) {
+                decide(o);
+            }
+        } finally {
+            // whatever happens, inputs already decided must not be left pending
+            for (Map.Entry<InputAction, Map<InputStepExecution, Item>> entry : settled.entrySet()) {
+                complete(entry.getKey(), entry.getValue());
+            }
+        }
+        return JSONArray.fromObject(results);
+    }
+
+    private void decide(Object o) throws InterruptedException {
+        JSONObject result = new JSONObject();
+        results.add(result);
+        String runId = null;
+        String id = null;
+        try {
+            JSONObject item = JSONObject.fromObject(o);
+            runId = item.optString("run", null);
+            id = item.optString("id", null);
+            String action = item.optString("action", null);
+            result.element("run", runId).element("id", id);
+            if (runId == null || id == null) {
+                throw new Failure("Both run and id are required");
+            }
+            Run<?, ?> run = Run.fromExternalizableId(runId);
+            InputAction inputAction = run == null ? null : run.getAction(InputAction.class);
+            InputStepExecution execution = inputAction == null ? null : inputAction.getExecution(id);
+            if (execution == null) {
+                throw new Failure("No such pending input");
+            }
+            if (!"proceed".equals(action) && !"abort".equals(action)) {
+                throw new Failure("Unknown action: " + action);
+            }
+            Map<InputStepExecution, InputSubmittedAction> decided = execution.decide("proceed".equals(action), request, item.opt("parameter"));
+            Map<InputStepExecution, Item> forRun = settled.computeIfAbsent(inputAction, k -> new LinkedHashMap<>());
+            for (Map.Entry<InputStepExecution, InputSubmittedAction> entry : decided.entrySet()) {
+                forRun.put(entry.getKey(), new Item(result, entry.getValue()));
+            }
+            result.element("result", "ok");
+        } catch (IOException | ServletException | TimeoutException | RuntimeException x) {
+            // RuntimeException: Failure, AccessDeniedException, or malformed items, such as JSONException or ClassCastException
+            LOGGER.log(Level.FINE, "could not settle " + runId + " " + id, x);
+            result.element("result", "error").element("message", x.getMessage());
+        }
+    }
+
+    private void complete(InputAction inputAction, Map<InputStepExecution, Item> items) throws InterruptedException {
+        try {
+            inputAction.removeAll(items.keySet());
+        } catch (IOException | TimeoutException x) {
+            LOGGER.log(Level.WARNING, "failed to remove inputs from " + inputAction.getRun(), x);
+        }
+        // the decisions are made, so go on even if the build could not be saved, as postSettlement does
+        for (Map.Entry<InputStepExecution, Item> entry : items.entrySet()) {
+            try {
+                entry.getKey().completeSettlement(entry.getValue().submitted);
+            } catch (IOException | RuntimeException x) {
+                LOGGER.log(Level.WARNING, "failed to complete " + entry.getKey().getId() + " in " + inputAction.getRun(), x);
+                entry.getValue().result.element("result", "error").element("message", x.getMessage());
+            }
+        }
+    }
+}
@@ -1,21 +1,47 @@
 package org.jenkinsci.plugins.workflow.support.steps.input;
 
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.MoreExecutors;
+import edu.umd.cs.findbugs.annotations.CheckForNull;
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+import hudson.Util;
+import hudson.model.Api;
 import hudson.model.Run;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpSession;
+import jenkins.model.Jenkins;
 import jenkins.model.RunAction2;
+import jenkins.security.stapler.StaplerNotDispatchable;
+import jenkins.util.SystemProperties;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import edu.umd.cs.findbugs.annotations.NonNull;
 import org.jenkinsci.plugins.workflow.flow.FlowExecutionOwner;
 import org.jenkinsci.plugins.workflow.steps.StepExecution;
+import org.kohsuke.accmod.Restricted;
+import org.kohsuke.accmod.restrictions.NoExternalUse;
+import org.kohsuke.stapler.Stapler;
+import org.kohsuke.stapler.StaplerRequest2;
+import org.kohsuke.stapler.StaplerResponse2;
 import org.kohsuke.stapler.export.Exported;
 import org.kohsuke.stapler.export.ExportedBean;
 
@@ -27,69 +53,203 @@ public class InputAction implements RunAction2 {
 
     private static final Logger LOGGER = Logger.getLogger(InputAction.class.getName());
 
-    /** JENKINS-37154: number of seconds to block in {@link #loadExecutions} before we give up */
+    /** JENKINS-37154: number of seconds to block in {@link #awaitExecutions} before we give up */
     @SuppressWarnings("FieldMayBeFinal")
     private static /* not final */ int LOAD_EXECUTIONS_TIMEOUT = Integer.getInteger(InputAction.class.getName() + ".LOAD_EXECUTIONS_TIMEOUT", 60);
 
-    private transient List<InputStepExecution> executions = new ArrayList<InputStepExecution>();
-    @SuppressFBWarnings(value="IS2_INCONSISTENT_SYNC", justification="CopyOnWriteArrayList")
-    private List<String> ids = new CopyOnWriteArrayList<String>();
+    /** Milliseconds for which {@link #remove}, during a burst of removals, waits for others to share its save; see {@link SaveCoalescer}. */
+    @SuppressWarnings("FieldMayBeFinal")
+    private static /* not final */ long SAVE_COALESCING_WINDOW = Long.getLong(InputAction.class.getName() + ".SAVE_COALESCING_WINDOW", 20);
+
+    /**
+     * How many restorations one HTTP request may start, such as a Remote API query over many builds.
+     * Beyond that, executions are reported as still being restored.
+     */
+    static int getRestorationsPerRequest() {
+        return SystemProperties.getInteger(InputAction.class.getName() + ".RESTORATIONS_PER_REQUEST", 10);
+    }
+
+    private static final String RESTORATIONS_ATTRIBUTE = InputAction.class.getName() + ".restorations";
+
+    /**
+     * Counts a restoration against the budget of the current request, if any.
+     */
+    private static boolean withinRestorationBudget() {
+        StaplerRequest2 req = Stapler.getCurrentRequest2();
+        if (req == null) {
+            return true;
+        }
+        AtomicInteger restorations = (AtomicInteger) req.getAttribute(RESTORATIONS_ATTRIBUTE);
+        if (restorations == null) {
+            restorations = new AtomicInteger();
+            req.setAttribute(RESTORATIONS_ATTRIBUTE, restorations);
+        }
+        return restorations.incrementAndGet() <= getRestorationsPerRequest();
+    }
+
+    /** Pending executions, or null until {@link #restoreExecutions} has restored them. */
+    private transient volatile PendingInputIndex executions = new PendingInputIndex();
+    /** Restoration of {@link #executions} in progress, if any. */
+    private transient CompletableFuture<PendingInputIndex> restoration;
+    /** Persisted form of {@link PendingInputIndex#ids}, refreshed before every save. */
+    @SuppressFBWarnings(value="IS2_INCONSISTENT_SYNC", justification="CopyOnWriteArrayList, replaced rather than modified")
+    private volatile List<String> ids = new CopyOnWriteArrayList<String>();
+    /**
+     * Persisted summaries of the pending inputs, refreshed along with {@link #ids}.
+     * Missing for inputs started by older versions.
+     */
+    @SuppressFBWarnings(value="IS2_INCONSISTENT_SYNC", justification="CopyOnWriteArrayList, replaced rather than modified")
+    private volatile List<PendingInputSnapshot> snapshots = new CopyOnWriteArrayList<PendingInputSnapshot>();
 
     private transient Run<?,?> run;
+    private transient SaveCoalescer saver;
+    /**
+     * Changes whenever the pending inputs do, as they are added, removed or restored; see {@link #etag}.
+     * Taken from {@link #VERSIONS}, so that an action reloaded along with its build never repeats a version.
+     */
+    private transient volatile long version;
+
+    /** Source of {@link #version}s, increasing across all actions. */
+    private static final AtomicLong VERSIONS = new AtomicLong();
+    /** Distinguishes versions from before a restart. */
+    private static final String BOOT = Long.toString(System.currentTimeMillis(), Character.MAX_RADIX);
 
     @Override
     public void onAttached(Run<?, ?> r) {
         this.run = r;
+        this.saver = new SaveCoalescer(r, SAVE_COALESCING_WINDOW);
+        this.version = VERSIONS.incrementAndGet();
     }
 
     @Override
     public void onLoad(Run<?, ?> r) {
         this.run = r;
+        this.saver = new SaveCoalescer(r, SAVE_COALESCING_WINDOW);
+        this.version = VERSIONS.incrementAndGet();
         synchronized (this) {
             if (ids == null) {
                 // Loading from before JENKINS-25889 fix. Load the IDs and discard the executions, which lack state anyway.
-                assert executions != null && !executions.contains(null) : executions;
-                ids = new ArrayList<String>();
-                for (InputStepExecution execution : executions) {
-                    ids.add(execution.getId());
-                }
+                assert executions != null : "executions";
+                ids = new CopyOnWriteArrayList<String>(executions.ids());
                 executions = null;
             }
+            if (snapshots == null) {
+                snapshots = new CopyOnWriteArrayList<PendingInputSnapshot>();
+            }
+        }
+        if (r.isBuilding() && !ids.isEmpty()) {
+            PendingInputRegistry.get().registerSnapshots(r, ids, snapshots);
         }
     }
 
-    private synchronized void loadExecutions() throws InterruptedException, TimeoutException {
-        if (executions == null) {
-            try {
-                if (run instanceof FlowExecutionOwner.Executable) {
-                    var feo = ((FlowExecutionOwner.Executable) run).asFlowExecutionOwner();
-                    if (feo != null) {
-                        var candidateExecutions = feo.get().getCurrentExecutions(true).get(LOAD_EXECUTIONS_TIMEOUT, TimeUnit.SECONDS);
-                        executions = new ArrayList<>(); // only set this if we know the answer
-                        // JENKINS-37154 sometimes we must block here in order to get accurate results
-                        for (StepExecution se : candidateExecutions) {
-                            if (se instanceof InputStepExecution) {
-                                InputStepExecution ise = (InputStepExecution) se;
-                                if (ids.contains(ise.getId())) {
-                                    executions.add(ise);
-                                }
-                            }
+    /**
+     * Starts restoring {@link #executions} from the flow, unless that is already done or in progress.
+     * Never blocks on the flow itself, so it is safe to call from request handling threads.
+     * @return a future shared by all callers, completed with null if the executions could not be restored
+     */
+    private CompletableFuture<PendingInputIndex> restoreExecutions() {
+        PendingInputIndex index = executions;
+        if (index != null) {
+            return CompletableFuture.completedFuture(index);
+        }
+        synchronized (this) {
+            return startRestoration();
+        }
+    }
+
+    private CompletableFuture<PendingInputIndex> startRestoration() {
+        assert Thread.holdsLock(this);
+        PendingInputIndex index = executions;
+        if (index != null) {
+            return CompletableFuture.completedFuture(index);
+        }
+        if (restoration != null) {
+            return restoration;
+        }
+        CompletableFuture<PendingInputIndex> f = new CompletableFuture<>();
+        restoration = f;
+        try {
+            if (run instanceof FlowExecutionOwner.Executable) {
+                var feo = ((FlowExecutionOwner.Executable) run).asFlowExecutionOwner();
+                if (feo != null) {
+                    Futures.addCallback(feo.get().getCurrentExecutions(true), new FutureCallback<List<StepExecution>>() {
+                        @Override public void onSuccess(List<StepExecution> candidateExecutions) {
+                            restored(f, index(candidateExecutions));
                         }
-                        if (executions.size() < ids.size()) {
-                            LOGGER.log(Level.WARNING, "some input IDs not restored from {0}", run);
+                        @Override public void onFailure(Throwable t) {
+                            LOGGER.log(Level.WARNING, null, t);
+                            restored(f, null);
                         }
-                    } else {
-                        LOGGER.warning(() -> "no FlowExecutionOwner obtainable from " + run);
-                    }
+                    }, MoreExecutors.directExecutor());
+                    return f;
                 } else {
-                    LOGGER.warning(() -> "unrecognized build type " + run);
+                    LOGGER.warning(() -> "no FlowExecutionOwner obtainable from " + run);
+                }
+            } else {
+                LOGGER.warning(() -> "unrecognized build type " + run);
+            }
+        } catch (Exception x) {
+            LOGGER.log(Level.WARNING, null, x);
+        }
+        restored(f, null);
+        return f;
+    }
+
+    private PendingInputIndex index(List<StepExecution> candidateExecutions) {
+        Set<String> pendingIds = new HashSet<>(ids);
+        PendingInputIndex restored = new PendingInputIndex(ids);
+        for (StepExecution se : candidateExecutions) {
+            if (se instanceof InputStepExecution) {
+                InputStepExecution ise = (InputStepExecution) se;
+                if (pendingIds.contains(ise.getId())) {
+                    restored.add(ise);
                 }
-            } catch (InterruptedException | TimeoutException x) {
-                throw x;
-            } catch (Exception x) {
-                LOGGER.log(Level.WARNING, null, x);
             }
         }
+        if (restored.size() < pendingIds.size()) {
+            LOGGER.log(Level.WARNING, "some input IDs not restored from {0}", run);
+        }
+        PendingInputRegistry registry = PendingInputRegistry.get();
+        for (InputStepExecution ise : restored.list()) {
+            registry.register(run, ise);
+        }
+        return restored;
+    }
+
+    private void restored(CompletableFuture<PendingInputIndex> f, @CheckForNull PendingInputIndex index) {
+        synchronized (this) {
+            if (index != null) {
+                executions = index; // only set this if we know the answer
+                version = VERSIONS.incrementAndGet();
+            }
+            // on failure, let the next caller try again
+            restoration = null;
+        }
+        f.complete(index);
+    }
+
+    /**
+     * Starts restoring the pending executions ahead of need.
+     * @return completed with null if the executions could not be restored
+     * @see InputWarmup
+     */
+    CompletableFuture<?> warmUp() {
+        return restoreExecutions();
+    }
+
+    /**
+     * Waits for {@link #restoreExecutions}, without holding the monitor of this action.
+     * @return null if the executions could not be restored
+     */
+    @CheckForNull
+    private PendingInputIndex awaitExecutions() throws InterruptedException, TimeoutException {
+        try {
+            // JENKINS-37154 sometimes we must block here in order to get accurate results
+            return restoreExecutions().get(LOAD_EXECUTIONS_TIMEOUT, TimeUnit.SECONDS);
+        } catch (ExecutionException x) { // failures are reported by completing with null
+            LOGGER.log(Level.WARNING, null, x);
+            return null;
+        }
     }
 
     public Run<?, ?> getRun() {
@@ -101,6 +261,10 @@ public class InputAction implements RunAction2 {
         if (ids == null || ids.isEmpty()) {
             return null;
         } else {
+            if (executions == null && getSnapshotsIfComplete() == null && withinRestorationBudget()) {
+                // warm up for the input page, which is likely to be visited next
+                restoreExecutions();
+            }
             return "help.png";
         }
     }
@@ -120,59 +284,278 @@ public class InputAction implements RunAction2 {
         return "input";
     }
 
-    public synchronized void add(@NonNull InputStepExecution step) throws IOException, InterruptedException, TimeoutException {
-        loadExecutions();
-        if (executions == null) {
+    public void add(@NonNull InputStepExecution step) throws IOException, InterruptedException, TimeoutException {
+        PendingInputIndex index = awaitExecutions();
+        if (index == null) {
             throw new IOException("cannot load state");
         }
-        this.executions.add(step);
-        ids.add(step.getId());
-        run.save();
+        index.add(step);
+        save(index);
+        PendingInputRegistry.get().register(run, step);
     }
 
-    public synchronized InputStepExecution getExecution(String id) throws InterruptedException, TimeoutException {
-        loadExecutions();
-        if (executions == null) {
+    public InputStepExecution getExecution(String id) throws InterruptedException, TimeoutException {
+        PendingInputIndex index = awaitExecutions();
+        if (index == null) {
             return null;
         }
-        for (InputStepExecution e : executions) {
-            if (e.input.getId().equals(id))
-                return e;
-        }
-        return null;
+        return index.get(id);
     }
 
-    @Exported
-    public synchronized List<InputStepExecution> getExecutions() throws InterruptedException, TimeoutException {
-        loadExecutions();
-        if (executions == null) {
+    /**
+     * Gets the pending executions, waiting for them to be restored after a restart if necessary.
+     * Request handling code should prefer {@link #getExecutionsIfRestored}.
+     * @return an immutable snapshot
+     */
+    public List<InputStepExecution> getExecutions() throws InterruptedException, TimeoutException {
+        PendingInputIndex index = awaitExecutions();
+        if (index == null) {
             return Collections.emptyList();
         }
-        return new ArrayList<InputStepExecution>(executions);
+        return index.list();
+    }
+
+    /**
+     * Gets the pending executions if they are available without waiting.
+     * Otherwise starts restoring them in the background, unless the current request has used up its {@linkplain #getRestorationsPerRequest budget}.
+     * @return an immutable snapshot, or null while the executions are being restored
+     */
+    @Exported(name = "executions")
+    @Restricted(NoExternalUse.class) // jelly and Remote API
+    @CheckForNull
+    public List<InputStepExecution> getExecutionsIfRestored() {
+        PendingInputIndex index = executions;
+        if (index == null && withinRestorationBudget()) {
+            index = restoreExecutions().getNow(null);
+        }
+        if (index == null) {
+            return null;
+        }
+        return index.list();
+    }
+
+    /**
+     * Summarizes the pending inputs from persisted data only, so exporting this never restores anything.
+     * Inputs started by older versions and not yet restored have only an ID.
+     */
+    @Exported(name = "inputs")
+    public List<PendingInput> getSummaries() {
+        PendingInputIndex index = executions;
+        if (index != null) {
+            List<PendingInput> summaries = new ArrayList<>();
+            for (InputStepExecution exec : index.list()) {
+                summaries.add(PendingInput.of(run, exec));
+            }
+            return summaries;
+        }
+        Map<String, PendingInputSnapshot> byId = new HashMap<>();
+        for (PendingInputSnapshot snapshot : snapshots) {
+            byId.put(snapshot.getId(), snapshot);
+        }
+        List<PendingInput> summaries = new ArrayList<>();
+        for (String id : ids) {
+            PendingInputSnapshot snapshot = byId.get(id);
+            summaries.add(snapshot != null ? PendingInput.of(run, snapshot) : new PendingInput(run, id, null, null, 0, 0, List.of(), false));
+        }
+        return summaries;
+    }
+
+    /**
+     * Gets the persisted summaries of the pending inputs, which are available without restoring anything.
+     * Inputs started by older versions are missing.
+     */
+    public List<PendingInputSnapshot> getSnapshots() {
+        return Collections.unmodifiableList(snapshots);
     }
 
+    /**
+     * Gets the persisted summaries of the pending inputs, if there is one for each.
+     * @return null if some input was started by an older version
+     */
+    @Restricted(NoExternalUse.class) // jelly
+    @CheckForNull
+    public List<PendingInputSnapshot> getSnapshotsIfComplete() {
+        List<PendingInputSnapshot> result = snapshots;
+        return result.size() == ids.size() ? Collections.unmodifiableList(result) : null;
+    }
+
+    /**
+     * Whether there are pending inputs.
+     * Until the executions are restored this is answered from the persisted input IDs,
+     * so exporting this never restores anything.
+     */
     @Exported
     public boolean isWaitingForInput() throws InterruptedException, TimeoutException {
-        return !getExecutions().isEmpty();
+        PendingInputIndex index = executions;
+        if (index == null) {
+            return !ids.isEmpty();
+        }
+        return index.size() > 0;
+    }
+
+    /**
+     * Whether the pending executions have yet to be restored after a restart.
+     */
+    @Exported
+    public boolean isRestoring() {
+        return executions == null;
     }
 
     /**
      * Called when {@link InputStepExecution} is completed to remove it from the active input list.
+     * Saves the build, along with any other changes the caller has made to it,
+     * sharing the save with other removals arriving at about the same time.
+     * Returns once the removal is on disk.
      */
-    public synchronized void remove(InputStepExecution exec) throws IOException, InterruptedException, TimeoutException {
-        loadExecutions();
-        if (executions == null) {
+    public void remove(InputStepExecution exec) throws IOException, InterruptedException, TimeoutException {
+        removeAll(List.of(exec));
+    }
+
+    /**
+     * Removes several completed executions, saving the build once.
+     * @see #remove
+     */
+    public void removeAll(Collection<InputStepExecution> execs) throws IOException, InterruptedException, TimeoutException {
+        PendingInputIndex index = awaitExecutions();
+        if (index == null) {
             throw new IOException("cannot load state");
         }
-        executions.remove(exec);
-        ids.remove(exec.getId());
+        for (InputStepExecution exec : execs) {
+            index.remove(exec);
+        }
+        refreshIds(index);
+        saver.save();
+        PendingInputRegistry registry = PendingInputRegistry.get();
+        for (InputStepExecution exec : execs) {
+            // another execution may still be pending under the same ID, in a parallel branch
+            InputStepExecution other = index.get(exec.getId());
+            if (other != null) {
+                registry.register(run, other);
+            } else {
+                registry.unregister(run, exec.getId());
+            }
+        }
+    }
+
+    /**
+     * Persists the current state of the index.
+     * Only the refresh of {@link #ids} is serialized here; {@link Run#save} has its own lock,
+     * and since every save starts after the change it follows, the last one always writes the latest state.
+     */
+    private void save(PendingInputIndex index) throws IOException {
+        refreshIds(index);
         run.save();
     }
 
+    private synchronized void refreshIds(PendingInputIndex index) {
+        List<String> newIds = index.ids();
+        Map<String, PendingInputSnapshot> oldSnapshots = new HashMap<>();
+        for (PendingInputSnapshot snapshot : snapshots) {
+            oldSnapshots.put(snapshot.getId(), snapshot);
+        }
+        List<PendingInputSnapshot> newSnapshots = new ArrayList<>(newIds.size());
+        for (String id : newIds) {
+            InputStepExecution exec = index.get(id);
+            PendingInputSnapshot snapshot = oldSnapshots.get(id);
+            if (exec != null && (snapshot == null || snapshot.getInput() != exec.getInput())) {
+                snapshot = new PendingInputSnapshot(exec);
+            }
+            // otherwise not restored, so keep whatever was loaded
+            if (snapshot != null) {
+                newSnapshots.add(snapshot);
+            }
+        }
+        ids = new CopyOnWriteArrayList<String>(newIds);
+        snapshots = new CopyOnWriteArrayList<PendingInputSnapshot>(newSnapshots);
+        version = VERSIONS.incrementAndGet();
+    }
+
+    /**
+     * Identifies what {@link #doIndex} or {@link #getApi} would send to the current user:
+     * besides the pending inputs, the page shows the build in its side panel and header, and the API exports the state of each execution.
+     */
+    private String etag(StaplerRequest2 req) {
+        StringBuilder state = new StringBuilder(BOOT).append(':').append(version);
+        // the build: whether it is still running, how it ended, and any actions added to its side panel
+        state.append(':').append(run.isBuilding()).append(':').append(run.getResult()).append(':').append(run.getActions().size());
+        PendingInputIndex index = executions;
+        if (index != null) {
+            for (InputStepExecution execution : index.list()) {
+                state.append(':').append(execution.isSettled()); // settled shortly before being removed
+            }
+        }
+        HttpSession session = req.getSession(false); // forms include a crumb
+        state.append(':').append(Jenkins.getAuthentication2().getName()).append(':').append(session == null ? "" : session.getId())
+                .append(':').append(req.getLocale()).append(':').append(req.getQueryString()); // tree, depth
+        return '"' + Util.getDigestOf(state.toString()) + '"';
+    }
+
+    /**
+     * Answers a conditional request with {@code 304 Not Modified} if the pending inputs have not changed since.
+     * @return true if the response has been sent
+     */
+    private boolean notModified(StaplerRequest2 req, StaplerResponse2 rsp) {
+        String etag = etag(req);
+        rsp.setHeader("ETag", etag);
+        rsp.setHeader("Cache-Control", "private, no-cache");
+        String ifNoneMatch = req.getHeader("If-None-Match");
+        if (ifNoneMatch != null) {
+            for (String candidate : ifNoneMatch.split(",")) {
+                if (candidate.trim().equals(etag)) {
+                    rsp.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Shows the pending inputs, unless the client already has the current page.
+     */
+    public void doIndex(StaplerRequest2 req, StaplerResponse2 rsp) throws IOException, ServletException {
+        if (!notModified(req, rsp)) {
+            req.getView(this, "pending.jelly").forward(req, rsp);
+        }
+    }
+
+    /**
+     * Remote API, answering conditional requests for JSON like {@link #doIndex}.
+     */
+    public Api getApi() {
+        return new Api(this) {
+            @Override
+            public void doJson(StaplerRequest2 req, StaplerResponse2 rsp) throws IOException, ServletException {
+                if (!notModified(req, rsp)) {
+                    super.doJson(req, rsp);
+                }
+            }
+        };
+    }
+
     /**
      * Bind steps just by their ID names.
+     * Kept for API callers; URLs are bound by {@link #getDynamic(String, StaplerRequest2, StaplerResponse2)}.
      */
+    @StaplerNotDispatchable
     public InputStepExecution getDynamic(String token) throws InterruptedException, TimeoutException {
         return getExecution(token);
     }
+
+    /**
+     * Binds steps in URLs just by their ID names.
+     * Until the executions are restored, binds to the {@link PendingInputSnapshot} if there is one,
+     * so that the input can be displayed without loading the program of the build.
+     */
+    @Restricted(NoExternalUse.class)
+    public Object getDynamic(String token, StaplerRequest2 req, StaplerResponse2 rsp) throws InterruptedException, TimeoutException {
+        if (executions == null) {
+            for (PendingInputSnapshot snapshot : snapshots) {
+                if (snapshot.getId().equals(token)) {
+                    return snapshot;
+                }
+            }
+        }
+        return getExecution(token);
+    }
 }
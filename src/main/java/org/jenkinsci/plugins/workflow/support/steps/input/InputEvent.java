@@ -0,0 +1,130 @@
+package org.jenkinsci.plugins.workflow.support.steps.input;
+
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import hudson.model.Run;
+import java.util.Locale;
+import net.sf.json.JSONObject;
+
+/**
+ * Something that happened to a pending input.
+ * Carries no parameter values, which may be secret.
+ */
+public final class InputEvent {
+
+    public enum Type {
+        /** The build paused for the input. */
+        PAUSED,
+        /** Someone approved the input. */
+        APPROVED,
+        /** Someone rejected the input. */
+        REJECTED,
+        /** The step was stopped, such as when the build was aborted. */
+        STOPPED
+    }
+
+    private final Type type;
+    private final String job;
+    private final int build;
+    private final String runId;
+    private final String id;
+    private final String message;
+    private final String user;
+    private final String cause;
+    private final long timestamp;
+
+    InputEvent(@NonNull Type type, @NonNull String job, int build, @NonNull String runId, @NonNull String id, @NonNull String message,
+               @CheckForNull String user, @CheckForNull String cause) {
+        this.type = type;
+        this.job = job;
+        this.build = build;
+        this.runId = runId;
+        this.id = id;
+        this.message = message;
+        this.user = user;
+        this.cause = cause;
+        this.timestamp = System.currentTimeMillis();
+    }
+
+    static InputEvent of(@NonNull Type type, @NonNull Run<?, ?> run, @NonNull InputStep input, @CheckForNull String user, @CheckForNull String cause) {
+        return new InputEvent(type, run.getParent().getFullName(), run.getNumber(), run.getExternalizableId(), input.getId(), input.getMessage(), user, cause);
+    }
+
+    @NonNull
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * Full name of the job.
+     */
+    @NonNull
+    public String getJob() {
+        return job;
+    }
+
+    public int getBuild() {
+        return build;
+    }
+
+    /**
+     * @see Run#getExternalizableId
+     */
+    @NonNull
+    public String getRunId() {
+        return runId;
+    }
+
+    /**
+     * @see InputStep#getId
+     */
+    @NonNull
+    public String getId() {
+        return id;
+    }
+
+    @NonNull
+    public String getMessage() {
+        return message;
+    }
+
+    /**
+     * ID of the user who approved or rejected the input, if known.
+     */
+    @CheckForNull
+    public String getUser() {
+        return user;
+    }
+
+    /**
+     * Why the step was stopped, for {@link Type#STOPPED}, such as {@code ABORTED [UserInterruption]}
+     * or the class of the exception,
+     * or {@code timed out} if the input settled itself after {@link InputStep#getTimeout}.
+     */
+    @CheckForNull
+    public String getCause() {
+        return cause;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    JSONObject toJSON() {
+        return new JSONObject()
+                .element("type", type.name().toLowerCase(Locale.ROOT))
+                .element("job", job)
+                .element("build", build)
+                .element("run", runId)
+                .element("id", id)
+                .element("message", message)
+                .element("user", user)
+                .element("cause", cause)
+                .element("timestamp", timestamp);
+    }
+
+    @Override
+    public String toString() {
+        return type + " " + runId + "/" + id;
+    }
+}
@@ -0,0 +1,256 @@
+package org.jenkinsci.plugins.workflow.support.steps.input;
+
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import hudson.Extension;
+import hudson.ExtensionList;
+import hudson.model.Job;
+import hudson.security.ACL;
+import hudson.security.ACLContext;
+import hudson.util.DaemonThreadFactory;
+import hudson.util.NamingThreadFactory;
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import jenkins.model.Jenkins;
+import jenkins.util.SystemProperties;
+import jenkins.util.Timer;
+import net.sf.json.JSONObject;
+import org.kohsuke.accmod.Restricted;
+import org.kohsuke.accmod.restrictions.NoExternalUse;
+import org.kohsuke.stapler.StaplerRequest2;
+import org.kohsuke.stapler.StaplerResponse2;
+import org.springframework.security.core.Authentication;
+
+/**
+ * Pushes {@link InputEvent}s to clients as Server-Sent Events, at {@code /pendingInputs/events}.
+ * Each subscriber gets a bounded buffer; a subscriber whose buffer fills up is dropped rather than slowing anyone down.
+ * Events are filtered by the subscriber's permission to read the job.
+ * <p>
+ * Connections are served asynchronously, so that subscribers hold no request thread while they wait:
+ * publishing an event hands it to the buffer of each subscriber, and schedules that subscriber to be drained
+ * onto its connection with non-blocking writes, which resume when the client is ready for more.
+ */
+@Extension
+@Restricted(NoExternalUse.class)
+public final class InputEventStream {
+
+    private static final Logger LOGGER = Logger.getLogger(InputEventStream.class.getName());
+
+    @SuppressWarnings("FieldMayBeFinal")
+    private static /* not final */ int BUFFER = SystemProperties.getInteger(InputEventStream.class.getName() + ".BUFFER", 1000);
+    /** Seconds between comments sent to idle subscribers, so that proxies keep the connection open. */
+    @SuppressWarnings("FieldMayBeFinal")
+    private static /* not final */ int HEARTBEAT = SystemProperties.getInteger(InputEventStream.class.getName() + ".HEARTBEAT", 15);
+
+    private static final byte[] KEEPALIVE = ": keepalive\n\n".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] DROPPED = "event: dropped\ndata: {}\n\n".getBytes(StandardCharsets.UTF_8);
+
+    /** Drains subscribers; writes never block, so one thread serves them all. */
+    private static final ExecutorService WRITER = Executors.newSingleThreadExecutor(new NamingThreadFactory(new DaemonThreadFactory(), "InputEventStream"));
+
+    private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+    private ScheduledFuture<?> heartbeat;
+
+    @NonNull
+    static InputEventStream get() {
+        return ExtensionList.lookupSingleton(InputEventStream.class);
+    }
+
+    final class Subscriber implements WriteListener, AsyncListener {
+        final BlockingQueue<InputEvent> buffer;
+        volatile boolean dropped;
+        /** The connection, or null for a subscriber which only buffers. */
+        private final AsyncContext context;
+        private final ServletOutputStream out;
+        private final Authentication authentication;
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        /** Bytes of the event being written, which the connection was not ready for. */
+        private byte[] pending;
+        /** Whether anything was sent since the last heartbeat. */
+        private volatile boolean active;
+        /** Whether a heartbeat asked for a comment to be sent. */
+        private volatile boolean keepalive;
+        private boolean closed;
+
+        Subscriber(int capacity, @CheckForNull AsyncContext context, @CheckForNull ServletOutputStream out, @CheckForNull Authentication authentication) {
+            this.buffer = new ArrayBlockingQueue<>(capacity);
+            this.context = context;
+            this.out = out;
+            this.authentication = authentication;
+        }
+
+        /**
+         * Arranges for {@link #drain} to run soon, unless it is about to already.
+         */
+        void schedule() {
+            if (context != null && scheduled.compareAndSet(false, true)) {
+                WRITER.execute(() -> {
+                    scheduled.set(false);
+                    drain();
+                });
+            }
+        }
+
+        /**
+         * Writes as much as the connection is ready for, then returns; {@link #onWritePossible} resumes.
+         */
+        synchronized void drain() {
+            if (closed) {
+                return;
+            }
+            try (ACLContext ctx = ACL.as2(authentication)) {
+                while (out.isReady()) {
+                    if (pending != null) {
+                        byte[] bytes = pending;
+                        pending = null;
+                        out.write(bytes);
+                        continue;
+                    }
+                    InputEvent event = buffer.poll();
+                    if (event != null) {
+                        if (Jenkins.get().getItemByFullName(event.getJob(), Job.class) != null) { // readable by the subscriber
+                            pending = format(event);
+                            active = true;
+                        }
+                    } else if (dropped) {
+                        out.write(DROPPED);
+                        close();
+                        return;
+                    } else if (keepalive) {
+                        keepalive = false;
+                        pending = KEEPALIVE;
+                    } else {
+                        out.flush();
+                        return;
+                    }
+                }
+            } catch (IOException | RuntimeException x) {
+                LOGGER.log(Level.FINE, "subscriber disconnected", x);
+                close();
+            }
+        }
+
+        private synchronized void close() {
+            if (!closed) {
+                closed = true;
+                unsubscribe(this);
+                context.complete();
+            }
+        }
+
+        @Override public void onWritePossible() {
+            drain();
+        }
+
+        @Override public void onError(Throwable t) {
+            LOGGER.log(Level.FINE, "subscriber disconnected", t);
+            close();
+        }
+
+        @Override public void onComplete(AsyncEvent event) {
+            unsubscribe(this);
+        }
+
+        @Override public void onTimeout(AsyncEvent event) {
+            close();
+        }
+
+        @Override public void onError(AsyncEvent event) {
+            onError(event.getThrowable());
+        }
+
+        @Override public void onStartAsync(AsyncEvent event) {}
+    }
+
+    /**
+     * Hands an event to every subscriber. Never blocks.
+     */
+    void publish(@NonNull InputEvent event) {
+        for (Subscriber s : subscribers) {
+            if (!s.buffer.offer(event)) {
+                LOGGER.fine(() -> "dropping a subscriber which fell " + s.buffer.size() + " events behind");
+                s.dropped = true;
+                s.buffer.clear();
+                subscribers.remove(s);
+            }
+            s.schedule();
+        }
+    }
+
+    Subscriber subscribe(int capacity) {
+        return add(new Subscriber(capacity, null, null, null));
+    }
+
+    private synchronized Subscriber add(Subscriber s) {
+        subscribers.add(s);
+        if (heartbeat == null && s.context != null) {
+            heartbeat = Timer.get().scheduleWithFixedDelay(this::heartbeat, HEARTBEAT, HEARTBEAT, TimeUnit.SECONDS);
+        }
+        return s;
+    }
+
+    synchronized void unsubscribe(Subscriber s) {
+        subscribers.remove(s);
+        if (heartbeat != null && subscribers.isEmpty()) {
+            heartbeat.cancel(false);
+            heartbeat = null;
+        }
+    }
+
+    int getSubscriberCount() {
+        return subscribers.size();
+    }
+
+    /**
+     * Sends a comment to each subscriber to which nothing was sent since the previous heartbeat.
+     */
+    private void heartbeat() {
+        for (Subscriber s : subscribers) {
+            if (!s.active) {
+                s.keepalive = true;
+                s.schedule();
+            }
+            s.active = false;
+        }
+    }
+
+    /**
+     * Streams events to the caller until they disconnect or are dropped, without holding the request thread.
+     */
+    void serve(StaplerRequest2 req, StaplerResponse2 rsp) throws IOException {
+        rsp.setContentType("text/event-stream;charset=UTF-8");
+        rsp.setHeader("Cache-Control", "no-cache");
+        rsp.setHeader("X-Accel-Buffering", "no"); // nginx
+        ServletOutputStream out = rsp.getOutputStream();
+        out.write(": connected\n\n".getBytes(StandardCharsets.UTF_8));
+        out.flush();
+        AsyncContext context = req.startAsync();
+        context.setTimeout(0); // until the client disconnects
+        Subscriber s = new Subscriber(BUFFER, context, out, Jenkins.getAuthentication2());
+        context.addListener(s);
+        add(s);
+        out.setWriteListener(s); // calls onWritePossible once ready
+    }
+
+    private static byte[] format(InputEvent event) {
+        JSONObject json = event.toJSON();
+        // no raw newlines in JSON
+        return ("event: " + json.getString("type") + "\ndata: " + json + "\n\n").getBytes(StandardCharsets.UTF_8);
+    }
+}
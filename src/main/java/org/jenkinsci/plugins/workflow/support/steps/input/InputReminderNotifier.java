@@ -0,0 +1,58 @@
+package org.jenkinsci.plugins.workflow.support.steps.input;
+
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import hudson.ExtensionList;
+import hudson.ExtensionPoint;
+import java.util.List;
+
+/**
+ * Delivers reminders about inputs which have been pending longer than their {@link InputStep#getReminders},
+ * for example by mail or chat.
+ * Each sweep of {@link InputReminders} calls {@link #remind} once per recipient, with every input due a reminder for them.
+ */
+public abstract class InputReminderNotifier implements ExtensionPoint {
+
+    /**
+     * Sends one digest.
+     * @param recipient a user or group named in {@link InputStep#getSubmitter},
+     *                  or null for inputs without one, which anyone with {@link hudson.model.Job#BUILD} may settle
+     * @param reminders inputs due a reminder, oldest first
+     */
+    public abstract void remind(@CheckForNull String recipient, @NonNull List<Reminder> reminders) throws Exception;
+
+    public static ExtensionList<InputReminderNotifier> all() {
+        return ExtensionList.lookup(InputReminderNotifier.class);
+    }
+
+    /**
+     * An input which has been pending longer than one of its reminder thresholds.
+     */
+    public static final class Reminder {
+
+        private final PendingInput input;
+        private final long threshold;
+
+        Reminder(@NonNull PendingInput input, long threshold) {
+            this.input = input;
+            this.threshold = threshold;
+        }
+
+        @NonNull
+        public PendingInput getInput() {
+            return input;
+        }
+
+        /**
+         * The threshold crossed, in milliseconds; the highest one if several were crossed since the last sweep.
+         */
+        public long getThreshold() {
+            return threshold;
+        }
+
+        @Override
+        public String toString() {
+            return input + " after " + threshold + "ms";
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package org.jenkinsci.plugins.workflow.support.steps.input;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import hudson.Extension;
+import hudson.ExtensionList;
+import hudson.model.AsyncPeriodicWork;
+import hudson.model.TaskListener;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import jenkins.util.SystemProperties;
+import org.kohsuke.accmod.Restricted;
+import org.kohsuke.accmod.restrictions.NoExternalUse;
+
+/**
+ * Reminds submitters of inputs which have been pending longer than their {@link InputStep#getReminders}.
+ * A single sweep over {@link PendingInputRegistry#all} each {@link #getRecurrencePeriod} finds every input
+ * which crossed a threshold since the previous sweep, and hands each {@link InputReminderNotifier}
+ * one digest per recipient, however many inputs or builds it covers.
+ * Nothing is persisted: thresholds crossed while Jenkins was down are not reported.
+ */
+@Extension
+@Restricted(NoExternalUse.class)
+public final class InputReminders extends AsyncPeriodicWork {
+
+    private static final Logger LOGGER = Logger.getLogger(InputReminders.class.getName());
+
+    /** Time between sweeps, in milliseconds, which is also the resolution of reminders. */
+    @SuppressWarnings("FieldMayBeFinal")
+    private static /* not final */ long PERIOD = SystemProperties.getLong(InputReminders.class.getName() + ".PERIOD", TimeUnit.MINUTES.toMillis(1));
+
+    private static final Pattern THRESHOLD = Pattern.compile("(\\d+)\\s*([smhd])");
+
+    /** End of the period covered by the previous sweep. */
+    private long lastSweep = System.currentTimeMillis();
+
+    public InputReminders() {
+        super("Input reminders");
+    }
+
+    @NonNull
+    static InputReminders get() {
+        return ExtensionList.lookupSingleton(InputReminders.class);
+    }
+
+    @Override
+    public long getRecurrencePeriod() {
+        return PERIOD;
+    }
+
+    @Override
+    protected void execute(TaskListener listener) {
+        long now = System.currentTimeMillis();
+        Map<String, List<InputReminderNotifier.Reminder>> digests = sweep(lastSweep, now);
+        lastSweep = now;
+        deliver(digests);
+    }
+
+    /**
+     * Finds the inputs which crossed a reminder threshold after {@code from} and no later than {@code to}.
+     * @return reminders by recipient, with a null key for inputs without a submitter
+     */
+    @NonNull
+    Map<String, List<InputReminderNotifier.Reminder>> sweep(long from, long to) {
+        Map<String, List<InputReminderNotifier.Reminder>> digests = new LinkedHashMap<>();
+        for (PendingInput input : PendingInputRegistry.get().all()) {
+            long since = input.getSince();
+            if (since == 0) {
+                continue;
+            }
+            long crossed = 0;
+            for (long threshold : input.getReminders()) {
+                long at = since + threshold;
+                if (at > from && at <= to) {
+                    crossed = threshold;
+                }
+            }
+            if (crossed == 0) {
+                continue;
+            }
+            InputReminderNotifier.Reminder reminder = new InputReminderNotifier.Reminder(input, crossed);
+            Set<String> recipients = SubmitterMatcher.names(input.getSubmitter());
+            if (recipients.isEmpty()) {
+                digests.computeIfAbsent(null, k -> new ArrayList<>()).add(reminder);
+            }
+            for (String recipient : recipients) {
+                digests.computeIfAbsent(recipient, k -> new ArrayList<>()).add(reminder);
+            }
+        }
+        return digests;
+    }
+
+    /**
+     * Hands each digest to each notifier.
+     */
+    void deliver(@NonNull Map<String, List<InputReminderNotifier.Reminder>> digests) {
+        if (digests.isEmpty()) {
+            return;
+        }
+        for (InputReminderNotifier notifier : InputReminderNotifier.all()) {
+            for (Map.Entry<String, List<InputReminderNotifier.Reminder>> digest : digests.entrySet()) {
+                try {
+                    notifier.remind(digest.getKey(), List.copyOf(digest.getValue()));
+                } catch (Exception x) {
+                    LOGGER.log(Level.WARNING, "failed to remind " + digest.getKey() + " via " + notifier, x);
+                }
+            }
+        }
+    }
+
+    /**
+     * Parses a list of thresholds such as {@code 1h,4h,24h}, each a positive number followed by
+     * {@code s}, {@code m}, {@code h} or {@code d}.
+     * @return the thresholds in milliseconds, ascending and without duplicates
+     * @throws IllegalArgumentException if the list is malformed
+     */
+    @NonNull
+    static List<Long> parse(@NonNull String spec) {
+        Set<Long> thresholds = new TreeSet<>();
+        for (String part : spec.split(",")) {
+            Matcher m = THRESHOLD.matcher(part.trim().toLowerCase(Locale.ROOT));
+            if (!m.matches()) {
+                throw new IllegalArgumentException("Invalid reminder '" + part.trim() + "': expected a number followed by s, m, h or d");
+            }
+            long amount = Long.parseLong(m.group(1));
+            if (amount == 0) {
+                throw new IllegalArgumentException("Invalid reminder '" + part.trim() + "': must be positive");
+            }
+            TimeUnit unit;
+            switch (m.group(2)) {
+                case "s":
+                    unit = TimeUnit.SECONDS;
+                    break;
+                case "m":
+                    unit = TimeUnit.MINUTES;
+                    break;
+                case "h":
+                    unit = TimeUnit.HOURS;
+                    break;
+                default:
+                    unit = TimeUnit.DAYS;
+            }
+            thresholds.add(unit.toMillis(amount));
+        }
+        return List.copyOf(thresholds);
+    }
+}
@@ -1,5 +1,7 @@
 package org.jenkinsci.plugins.workflow.support.steps.input;
 
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import edu.umd.cs.findbugs.annotations.NonNull;
 import hudson.AbortException;
 import hudson.Extension;
 import hudson.ExtensionList;
@@ -10,22 +12,24 @@ import hudson.model.PasswordParameterDefinition;
 import hudson.model.Run;
 import hudson.model.TaskListener;
 import hudson.model.ParameterDefinition.ParameterDescriptor;
+import hudson.security.SecurityRealm;
 import hudson.util.FormValidation;
 import hudson.util.FormValidation.Kind;
 import hudson.util.Secret;
 import java.io.Serializable;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 import jenkins.model.Jenkins;
 import jenkins.util.SystemProperties;
 import org.acegisecurity.Authentication;
-import org.acegisecurity.GrantedAuthority;
 import org.jenkinsci.plugins.structs.describable.CustomDescribableModel;
 import org.jenkinsci.plugins.structs.describable.DescribableModel;
 import org.jenkinsci.plugins.structs.describable.UninstantiatedDescribable;
@@ -65,6 +69,11 @@ public class InputStep extends AbstractStepImpl implements Serializable {
      */
     private String submitter;
 
+    /**
+     * {@link #submitter} compiled for the current security realm.
+     */
+    private transient volatile SubmitterMatcher submitterMatcher;
+
     /**
      * Optional parameter name to stored the user who responded to the input.
      */
@@ -76,6 +85,11 @@ public class InputStep extends AbstractStepImpl implements Serializable {
      */
     private List<ParameterDefinition> parameters = Collections.emptyList();
 
+    /**
+     * {@link #parameters} by name.
+     */
+    private transient volatile Map<String, ParameterDefinition> parametersByName;
+
     /**
      * Caption of the Cancel button.
      */
@@ -86,6 +100,35 @@ public class InputStep extends AbstractStepImpl implements Serializable {
      */
     private String ok;
 
+    /**
+     * Optional time after which the input settles itself, in {@link #timeoutUnit}; 0 for none.
+     */
+    private long timeout;
+
+    private TimeUnit timeoutUnit;
+
+    private TimeoutAction timeoutAction;
+
+    /**
+     * Optional comma-separated times after which to remind submitters of this input, such as {@code 1h,4h,24h}.
+     */
+    private String reminders;
+
+    /**
+     * Optional name shared by inputs of one build which are to be settled together.
+     */
+    private String group;
+
+    /**
+     * What to do when an input times out.
+     */
+    public enum TimeoutAction {
+        /** Reject the input, aborting the build. */
+        ABORT,
+        /** Approve the input with the default value of each parameter. */
+        PROCEED
+    }
+
     @DataBoundConstructor
     public InputStep(String message) {
         super(true);
@@ -117,6 +160,7 @@ public class InputStep extends AbstractStepImpl implements Serializable {
 
     @DataBoundSetter public void setSubmitter(String submitter) {
         this.submitter = Util.fixEmptyAndTrim(submitter);
+        this.submitterMatcher = null;
     }
 
     @Exported
@@ -162,6 +206,82 @@ public class InputStep extends AbstractStepImpl implements Serializable {
         this.ok = Util.fixEmptyAndTrim(ok);
     }
 
+    /**
+     * Time after which the input settles itself as per {@link #getTimeoutAction}, or 0 to wait indefinitely.
+     */
+    @Exported
+    public long getTimeout() {
+        return timeout;
+    }
+
+    @DataBoundSetter public void setTimeout(long timeout) {
+        if (timeout < 0) {
+            throw new IllegalArgumentException("timeout must not be negative");
+        }
+        this.timeout = timeout;
+    }
+
+    @Exported
+    public TimeUnit getTimeoutUnit() {
+        return timeoutUnit != null ? timeoutUnit : TimeUnit.MINUTES;
+    }
+
+    @DataBoundSetter public void setTimeoutUnit(TimeUnit timeoutUnit) {
+        this.timeoutUnit = timeoutUnit;
+    }
+
+    @Exported
+    public TimeoutAction getTimeoutAction() {
+        return timeoutAction != null ? timeoutAction : TimeoutAction.ABORT;
+    }
+
+    @DataBoundSetter public void setTimeoutAction(TimeoutAction timeoutAction) {
+        this.timeoutAction = timeoutAction;
+    }
+
+    /**
+     * {@link #getTimeout} in milliseconds.
+     */
+    long getTimeoutMillis() {
+        return getTimeoutUnit().toMillis(timeout);
+    }
+
+    /**
+     * @see InputReminders
+     */
+    @Exported
+    public String getReminders() {
+        return reminders;
+    }
+
+    @DataBoundSetter public void setReminders(String reminders) {
+        reminders = Util.fixEmptyAndTrim(reminders);
+        if (reminders != null) {
+            InputReminders.parse(reminders); // validate
+        }
+        this.reminders = reminders;
+    }
+
+    /**
+     * {@link #getReminders} in milliseconds, ascending.
+     */
+    List<Long> getReminderMillis() {
+        return reminders != null ? InputReminders.parse(reminders) : List.of();
+    }
+
+    /**
+     * When set, approving or rejecting this input does the same to every other input pending in the build with the same group.
+     */
+    @Exported
+    @CheckForNull
+    public String getGroup() {
+        return group;
+    }
+
+    @DataBoundSetter public void setGroup(String group) {
+        this.group = Util.fixEmptyAndTrim(group);
+    }
+
     @Exported
     public List<ParameterDefinition> getParameters() {
         return parameters;
@@ -169,6 +289,24 @@ public class InputStep extends AbstractStepImpl implements Serializable {
 
     @DataBoundSetter public void setParameters(List<ParameterDefinition> parameters) {
         this.parameters = parameters;
+        this.parametersByName = null;
+    }
+
+    /**
+     * {@link #getParameters} by name, built once.
+     * Should two parameters share a name, the last wins, as it always has when binding submitted values.
+     */
+    @NonNull
+    Map<String, ParameterDefinition> getParametersByName() {
+        Map<String, ParameterDefinition> byName = parametersByName;
+        if (byName == null) {
+            Map<String, ParameterDefinition> map = new HashMap<>();
+            for (ParameterDefinition d : parameters) {
+                map.put(d.getName(), d);
+            }
+            parametersByName = byName = Collections.unmodifiableMap(map);
+        }
+        return byName;
     }
 
     @Exported
@@ -176,6 +314,20 @@ public class InputStep extends AbstractStepImpl implements Serializable {
         return message;
     }
 
+    /**
+     * Whether any parameter is a {@link FileParameterDefinition}, support for which is being removed (SECURITY-2705).
+     */
+    boolean hasUnsafeParameters() {
+        return parameters.stream().anyMatch(parameter -> parameter.getClass() == FileParameterDefinition.class);
+    }
+
+    /**
+     * Whether the ID needs encoding in URLs.
+     */
+    boolean hasUnsafeId() {
+        return !getDescriptor().doCheckId(getId()).kind.equals(Kind.OK);
+    }
+
     @Deprecated
     public boolean canSubmit() {
         Authentication a = Jenkins.getAuthentication();
@@ -187,17 +339,26 @@ public class InputStep extends AbstractStepImpl implements Serializable {
      */
     @Deprecated
     public boolean canSettle(Authentication a) {
-        if (submitter==null)
-            return true;
-        final Set<String> submitters = new HashSet<>();
-        Collections.addAll(submitters, submitter.split(","));
-        if (submitters.contains(a.getName()))
-            return true;
-        for (GrantedAuthority ga : a.getAuthorities()) {
-            if (submitters.contains(ga.getAuthority()))
-                return true;
+        SubmitterMatcher matcher = getSubmitterMatcher();
+        return matcher == null || matcher.matches(a.toSpring());
+    }
+
+    /**
+     * {@link #getSubmitter} compiled for the current security realm, or null if none is specified.
+     * Compiled once, and again only if the realm's {@link jenkins.model.IdStrategy}s change.
+     */
+    @CheckForNull
+    SubmitterMatcher getSubmitterMatcher() {
+        String submitter = this.submitter;
+        if (submitter == null) {
+            return null;
+        }
+        SecurityRealm realm = Jenkins.get().getSecurityRealm();
+        SubmitterMatcher matcher = submitterMatcher;
+        if (matcher == null || !matcher.isFor(realm)) {
+            submitterMatcher = matcher = new SubmitterMatcher(submitter, realm.getUserIdStrategy(), realm.getGroupIdStrategy());
         }
-        return false;
+        return matcher;
     }
 
     @Override public StepExecution start(StepContext context) throws Exception {
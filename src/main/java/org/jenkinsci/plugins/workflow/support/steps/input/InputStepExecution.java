@@ -7,7 +7,6 @@ import hudson.FilePath;
 import hudson.Util;
 import hudson.console.HyperlinkNote;
 import hudson.model.Failure;
-import hudson.model.FileParameterDefinition;
 import hudson.model.FileParameterValue;
 import hudson.model.Job;
 import hudson.model.ModelObject;
@@ -15,28 +14,26 @@ import hudson.model.ParameterDefinition;
 import hudson.model.ParameterValue;
 import hudson.model.Result;
 import hudson.model.Run;
+import hudson.model.SimpleParameterDefinition;
 import hudson.model.TaskListener;
 import hudson.model.User;
 import hudson.security.ACL;
 import hudson.security.ACLContext;
-import hudson.security.SecurityRealm;
-import hudson.util.FormValidation.Kind;
 import hudson.util.HttpResponses;
 import io.jenkins.servlet.ServletExceptionWrapper;
 import jenkins.console.ConsoleUrlProvider;
-import jenkins.model.IdStrategy;
+import jenkins.model.CauseOfInterruption;
 import jenkins.model.Jenkins;
 import jenkins.security.stapler.StaplerNotDispatchable;
 import net.sf.json.JSONArray;
 import net.sf.json.JSONObject;
-import org.acegisecurity.Authentication;
-import org.acegisecurity.GrantedAuthority;
 import org.jenkinsci.plugins.workflow.steps.AbstractStepExecutionImpl;
 import org.jenkinsci.plugins.workflow.support.actions.PauseAction;
 import org.jenkinsci.plugins.workflow.graph.FlowNode;
 import org.kohsuke.accmod.Restricted;
 import org.kohsuke.accmod.restrictions.NoExternalUse;
 import org.kohsuke.stapler.HttpResponse;
+import org.kohsuke.stapler.QueryParameter;
 import org.kohsuke.stapler.StaplerRequest;
 import org.kohsuke.stapler.StaplerRequest2;
 import org.kohsuke.stapler.export.Exported;
@@ -46,20 +43,23 @@ import org.kohsuke.stapler.interceptor.RequirePOST;
 import edu.umd.cs.findbugs.annotations.CheckForNull;
 import jakarta.servlet.ServletException;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
-import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
-import java.util.Set;
 import java.util.concurrent.TimeoutException;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import jenkins.util.SystemProperties;
-import jenkins.util.Timer;
 import org.jenkinsci.plugins.workflow.steps.FlowInterruptedException;
 import org.jenkinsci.plugins.workflow.steps.StepContext;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
 
 /**
  * @author Kohsuke Kawaguchi
@@ -69,6 +69,15 @@ public class InputStepExecution extends AbstractStepExecutionImpl implements Mod
 
     private static final Logger LOGGER = Logger.getLogger(InputStepExecution.class.getName());
 
+    /** {@link InputEvent#getCause} of an input settled by {@link #timeOut}. */
+    static final String TIMED_OUT = "timed out";
+
+    /** {@link InputEvent#getCause} of an input settled by a {@link PreApproval}. */
+    static final String PRE_APPROVED = "pre-approved";
+
+    /** {@link InputEvent#getCause} of an input settled by an {@link AutoApprovalRule}. */
+    static final String AUTO_APPROVED = "auto-approved";
+
     // for testing only
     static final String UNSAFE_PARAMETER_ALLOWED_PROPERTY_NAME = InputStepExecution.class.getName() + ".supportUnsafeParameters";
 
@@ -77,12 +86,18 @@ public class InputStepExecution extends AbstractStepExecutionImpl implements Mod
     }
 
     /**
-     * Result of the input.
+     * Result of the input. Set once, by {@link #claim}, except by {@link #stop}.
      */
-    private Outcome outcome;
+    private volatile Outcome outcome;
 
     final InputStep input;
 
+    /** When {@link #start} was called, or 0 if started by an older version. */
+    private long pauseStartTime;
+
+    /** Whether {@link #checkPreApprovals} has yet to approve or pause this input; saved with the program so that a restart meanwhile does not lose it. */
+    private boolean checkingPreApprovals;
+
     InputStepExecution(InputStep input, StepContext context) {
         super(context);
         this.input = input;
@@ -111,8 +126,28 @@ public class InputStepExecution extends AbstractStepExecutionImpl implements Mod
         TaskListener listener = getListener();
         FlowNode node = getNode();
 
-        // record this input
+        if (autoApproved(run, listener, node)) {
+            return true;
+        }
+        if (!PreApprovals.get().candidates(run, getId()).isEmpty()) {
+            checkingPreApprovals = true;
+            checkPreApprovals();
+            return false;
+        }
+        pause(run, listener, node);
+        return false;
+    }
+
+    /**
+     * Records this input as pending and tells everyone so.
+     */
+    private void pause(Run<?, ?> run, TaskListener listener, FlowNode node) throws IOException, InterruptedException, TimeoutException {
+        pauseStartTime = System.currentTimeMillis();
         getPauseAction().add(this);
+        if (isSettled()) { // stopped while the pre-approvals were being checked
+            getPauseAction().remove(this);
+            return;
+        }
 
         // This node causes the flow to pause at this point so we mark it as a "Pause Node".
         node.addAction(new PauseAction("Input"));
@@ -128,25 +163,89 @@ public class InputStepExecution extends AbstractStepExecutionImpl implements Mod
             // TODO would be even cooler to embed the parameter form right in the build log (hiding it after submission)
             listener.getLogger().println(HyperlinkNote.encodeTo(baseUrl, "Input requested"));
         }
-        return false;
+        fire(InputEvent.Type.PAUSED, null, null);
+    }
+
+    /**
+     * Finishes {@link #start} once there are {@link PreApproval}s to check:
+     * either one approves this input, or it pauses as usual.
+     * Looking up approvers may need the security realm and using up a pre-approval saves it,
+     * so this runs in the background rather than on the thread running the program.
+     */
+    private void checkPreApprovals() {
+        InputStepExecutor.get().submit(new Runnable() {
+            @Override public void run() {
+                try (ACLContext context = ACL.as2(ACL.SYSTEM2)) {
+                    if (isSettled()) {
+                        return; // stopped meanwhile
+                    }
+                    Run<?, ?> run = getRun();
+                    InputAction pending = run.getAction(InputAction.class);
+                    if (pending != null && pending.getExecution(getId()) != null) {
+                        return; // already paused before a restart
+                    }
+                    TaskListener listener = getListener();
+                    FlowNode node = getNode();
+                    if (!preApproved(run, listener, node)) {
+                        pause(run, listener, node);
+                    }
+                    checkingPreApprovals = false;
+                } catch (IOException | InterruptedException | TimeoutException | RuntimeException x) {
+                    getContext().onFailure(x);
+                }
+            }
+            @Override public String toString() {
+                return "checking pre-approvals for " + getContext();
+            }
+        });
+    }
+
+    @Override
+    public void onResume() {
+        if (checkingPreApprovals && !isSettled()) {
+            // restarted before the pre-approvals were checked, or before the program was saved again afterwards
+            checkPreApprovals();
+        }
     }
 
     @Override
     public void stop(Throwable cause) throws Exception {
-        outcome = new Outcome(null,cause);
+        synchronized (this) {
+            outcome = new Outcome(null,cause);
+        }
         // JENKINS-37154: we might be inside the VM thread, so do not do anything which might block on the VM thread
-        Timer.get().submit(new Runnable() {
+        InputStepExecutor.get().submit(new Runnable() {
             @Override public void run() {
                 try (ACLContext context = ACL.as2(ACL.SYSTEM2)) {
-                   postSettlement();
+                   postSettlement(null);
+                   fire(InputEvent.Type.STOPPED, null, describe(cause));
                 } catch (IOException | InterruptedException x) {
                     LOGGER.log(Level.WARNING, "failed to abort " + getContext(), x);
                 }
             }
+            @Override public String toString() {
+                return "settling " + getContext();
+            }
         });
         super.stop(cause);
     }
 
+    /**
+     * Says why the step was stopped without the message of the exception,
+     * which is sent to anyone who can read the job and may hold anything.
+     */
+    private static String describe(Throwable cause) {
+        if (cause instanceof FlowInterruptedException) {
+            FlowInterruptedException interruption = (FlowInterruptedException) cause;
+            List<String> causes = new ArrayList<>();
+            for (CauseOfInterruption c : interruption.getCauses()) {
+                causes.add(c.getClass().getSimpleName());
+            }
+            return causes.isEmpty() ? interruption.getResult().toString() : interruption.getResult() + " " + causes;
+        }
+        return cause.getClass().getName();
+    }
+
     @Exported
     public String getId() {
         return input.getId();
@@ -157,6 +256,13 @@ public class InputStepExecution extends AbstractStepExecutionImpl implements Mod
         return input;
     }
 
+    /**
+     * When the build paused for this input, in milliseconds since the epoch, or 0 if unknown.
+     */
+    public long getPauseStartTime() {
+        return pauseStartTime;
+    }
+
     public Run<?, ?> getRun() throws IOException, InterruptedException {
         return getContext().get(Run.class);
     }
@@ -217,9 +323,13 @@ public class InputStepExecution extends AbstractStepExecutionImpl implements Mod
      */
     @RequirePOST
     public HttpResponse doProceed(StaplerRequest2 request) throws IOException, ServletException, InterruptedException {
+        if (input.getGroup() != null) {
+            return settleGroup(decide(true, request, request.getSubmittedForm().get("parameter")));
+        }
         preSubmissionCheck();
-        Map<String,Object> v = parseValue(request);
-        return proceed(v);
+        List<ParameterValue> vals = new ArrayList<>();
+        Map<String,Object> v = parseValue(request, request.getSubmittedForm().get("parameter"), vals);
+        return proceed(v, vals);
     }
 
     /**
@@ -235,6 +345,50 @@ public class InputStepExecution extends AbstractStepExecutionImpl implements Mod
         }
     }
 
+    /**
+     * REST endpoint to submit the input with a JSON body mapping parameter names to values,
+     * such as {@code {"version": "1.2", "dryRun": true}}, without having to imitate a form submission.
+     * Values are bound by {@link SimpleParameterDefinition#createValue(String)}, and parameters not given take their default values.
+     * If any value cannot be bound nothing is submitted, and the error response has the problem with each field under {@code data}.
+     */
+    @RequirePOST
+    public HttpResponse doProceedJson(StaplerRequest2 request) throws IOException, ServletException, InterruptedException {
+        Map<String, String> readErrors = new LinkedHashMap<>();
+        Map<String, String> values;
+        try {
+            values = ParameterValuesReader.read(request.getReader(), readErrors);
+        } catch (IllegalArgumentException x) {
+            return HttpResponses.errorJSON(x.getMessage());
+        }
+        Map<InputStepExecution, InputSubmittedAction> decided;
+        try {
+            decided = decide(true, (member, vals) -> member.bindJson(values, readErrors, vals));
+        } catch (InvalidParametersException x) {
+            return HttpResponses.errorJSON("Invalid parameters", x.getErrors());
+        } catch (Failure x) {
+            return HttpResponses.errorJSON(x.getMessage());
+        }
+        settleGroup(decided);
+        return HttpResponses.okJSON();
+    }
+
+    /**
+     * Binds values read by {@link ParameterValuesReader} as the current user, like {@link #parseValue}.
+     * @param vals receives the parameter values, for {@link #bindCredentials}
+     * @throws InvalidParametersException listing every field which could not be read or bound
+     */
+    @CheckForNull
+    private Map<String, Object> bindJson(Map<String, String> values, Map<String, String> readErrors, Collection<ParameterValue> vals) throws IOException, InterruptedException {
+        Map<String, Object> mapResult = new HashMap<>();
+        bindText(values, readErrors, mapResult, vals);
+        String userId = Jenkins.getAuthentication2().getName();
+        String valueName = input.getSubmitterParameter();
+        if (valueName != null && !valueName.isEmpty()) {
+            mapResult.put(valueName, userId);
+        }
+        return mapResult.isEmpty() ? null : mapResult;
+    }
+
     /**
      * Processes the acceptance (approval) request.
      * This method is used by both {@link #doProceedEmpty()} and {@link #doProceed(StaplerRequest2)}
@@ -243,26 +397,70 @@ public class InputStepExecution extends AbstractStepExecutionImpl implements Mod
      * @return A HttpResponse object that represents Status code (200) indicating the request succeeded normally.
      */
     public HttpResponse proceed(@CheckForNull Map<String,Object> params) throws IOException, InterruptedException {
-        User user = User.current();
-        String approverId = null;
+        return proceed(params, List.of());
+    }
+
+    /**
+     * Like {@link #proceed(Map)}, also letting the build use any credentials among the parameter values once approved.
+     */
+    private HttpResponse proceed(@CheckForNull Map<String,Object> params, Collection<ParameterValue> vals) throws IOException, InterruptedException {
+        InputSubmittedAction submitted = approve(params);
+        bindCredentials(Jenkins.getAuthentication2().getName(), vals);
+        postSettlement(submitted);
+        fire(InputEvent.Type.APPROVED, submitted.getApprover(), null);
+        getContext().onSuccess(outcome.getNormal());
+
+        return HttpResponses.ok();
+    }
+
+    /**
+     * Records approval by the current user, without saving anything.
+     * @return the action to add to the node once the build is saved
+     */
+    private InputSubmittedAction approve(@CheckForNull Map<String,Object> params) throws IOException, InterruptedException {
+        return approve(User.current(), params);
+    }
+
+    private InputSubmittedAction approve(@CheckForNull User user, @CheckForNull Map<String,Object> params) throws IOException, InterruptedException {
+        InputSubmittedAction submitted = recordApproval(user != null ? user.getId() : null, params);
         if (user != null){
-            approverId = user.getId();
-            getRun().addAction(new ApproverAction(approverId));
+            getRun().addAction(new ApproverAction(user.getId())); // saved in postSettlement
             getListener().getLogger().println("Approved by " + hudson.console.ModelHyperlinkNote.encodeTo(user));
         }
-        getNode().addAction(new InputSubmittedAction(approverId, params));
+        return submitted;
+    }
 
+    /**
+     * @throws Failure if this input has been settled meanwhile
+     */
+    private InputSubmittedAction recordApproval(@CheckForNull String approverId, @CheckForNull Map<String,Object> params) {
+        if (!claim(approval(params))) {
+            throw new Failure("This input has been already given");
+        }
+        return new InputSubmittedAction(approverId, params);
+    }
+
+    private static Outcome approval(@CheckForNull Map<String,Object> params) {
         Object v;
         if (params != null && params.size() == 1) {
             v = params.values().iterator().next();
         } else {
             v = params;
         }
-        outcome = new Outcome(v, null);
-        postSettlement();
-        getContext().onSuccess(v);
+        return new Outcome(v, null);
+    }
 
-        return HttpResponses.ok();
+    /**
+     * Settles this input, unless it has been settled already, such as by someone else at the same time or by {@link #timeOut}.
+     * The checks before settling only fail early; this is what makes sure an input is settled once.
+     * @return whether this call settled it, and so should complete the settlement
+     */
+    private synchronized boolean claim(Outcome o) {
+        if (outcome != null) {
+            return false;
+        }
+        outcome = o;
+        return true;
     }
 
     @Deprecated
@@ -282,6 +480,13 @@ public class InputStepExecution extends AbstractStepExecutionImpl implements Mod
      */
     @RequirePOST
     public HttpResponse doProceedEmpty() throws IOException, InterruptedException {
+        if (input.getGroup() != null) {
+            try {
+                return settleGroup(decide(true, null, null));
+            } catch (ServletException x) {
+                throw new IOException(x); // not thrown without parameters
+            }
+        }
         preSubmissionCheck();
 
         Map<String, Object> mapResult = handleSubmitterParameter();
@@ -302,11 +507,18 @@ public class InputStepExecution extends AbstractStepExecutionImpl implements Mod
      */
     @RequirePOST
     public HttpResponse doAbort() throws IOException, InterruptedException {
+        if (input.getGroup() != null) {
+            try {
+                return settleGroup(decide(false, null, null));
+            } catch (ServletException x) {
+                throw new IOException(x); // not thrown when rejecting
+            }
+        }
         preAbortCheck();
 
-        FlowInterruptedException e = new FlowInterruptedException(Result.ABORTED, new Rejection(User.current()));
-        outcome = new Outcome(null,e);
-        postSettlement();
+        FlowInterruptedException e = reject();
+        postSettlement(null);
+        fire(InputEvent.Type.REJECTED, currentUserId(), null);
         getContext().onFailure(e);
 
         // TODO: record this decision to FlowNode
@@ -314,6 +526,360 @@ public class InputStepExecution extends AbstractStepExecutionImpl implements Mod
         return HttpResponses.ok();
     }
 
+    /**
+     * Records rejection by the current user, without saving anything.
+     * @throws Failure if this input has been settled meanwhile
+     */
+    private FlowInterruptedException reject() {
+        FlowInterruptedException e = new FlowInterruptedException(Result.ABORTED, new Rejection(User.current()));
+        if (!claim(new Outcome(null,e))) {
+            throw new Failure("This input has been already given");
+        }
+        return e;
+    }
+
+    /**
+     * Approves or rejects this input as the current user, along with every other pending input of the build
+     * in the same {@link InputStep#getGroup}, if any.
+     * Like {@link #doProceed(StaplerRequest2)} or {@link #doAbort}, but only decides: the caller must then remove the decided executions
+     * from the {@link InputAction}, along with any others of the same build, and call {@link #completeSettlement} on each.
+     * Every input is checked, and its parameters parsed, before any is decided or any credentials bound,
+     * so that a problem with any leaves them all pending.
+     * Inputs settled meanwhile by someone else are left out, unless it is this one.
+     * Should deciding fail part way, those already decided are completed before the failure is thrown.
+     * @param request the request, needed to approve with parameters
+     * @param parameter parameter values in the form submitted to {@code proceed}, if any, applied to each input
+     * @return the decided executions, this one first, with the argument for {@link #completeSettlement} of each
+     */
+    Map<InputStepExecution, InputSubmittedAction> decide(boolean approve, @CheckForNull StaplerRequest2 request, @CheckForNull Object parameter)
+            throws IOException, ServletException, InterruptedException {
+        return decide(approve, (member, vals) -> member.parseValue(request, parameter, vals));
+    }
+
+    /**
+     * Binds submitted parameter values for one input.
+     */
+    private interface ValueBinder {
+        /**
+         * @param vals receives the parameter values, for {@link #bindCredentials}
+         */
+        @CheckForNull
+        Map<String, Object> bind(InputStepExecution execution, Collection<ParameterValue> vals) throws IOException, ServletException, InterruptedException;
+    }
+
+    private Map<InputStepExecution, InputSubmittedAction> decide(boolean approve, ValueBinder binder)
+            throws IOException, ServletException, InterruptedException {
+        List<InputStepExecution> members = new ArrayList<>();
+        members.add(this);
+        String group = input.getGroup();
+        if (group != null) {
+            try {
+                for (InputStepExecution other : getPauseAction().getExecutions()) {
+                    if (other != this && group.equals(other.input.getGroup()) && !other.isSettled()) {
+                        members.add(other);
+                    }
+                }
+            } catch (TimeoutException x) {
+                throw new IOException(x);
+            }
+        }
+        Map<InputStepExecution, Map<String, Object>> params = new LinkedHashMap<>();
+        Map<InputStepExecution, List<ParameterValue>> vals = new HashMap<>();
+        for (InputStepExecution member : members) {
+            if (approve) {
+                member.preSubmissionCheck();
+                List<ParameterValue> memberVals = new ArrayList<>();
+                params.put(member, binder.bind(member, memberVals));
+                vals.put(member, memberVals);
+            } else {
+                member.preAbortCheck();
+            }
+        }
+        String userId = Jenkins.getAuthentication2().getName();
+        Map<InputStepExecution, InputSubmittedAction> decided = new LinkedHashMap<>();
+        try {
+            for (InputStepExecution member : members) {
+                try {
+                    if (approve) {
+                        decided.put(member, member.approve(params.get(member)));
+                        member.bindCredentials(userId, vals.get(member));
+                    } else {
+                        member.reject();
+                        decided.put(member, null);
+                    }
+                } catch (Failure x) {
+                    if (member == this) {
+                        throw x;
+                    }
+                    LOGGER.fine(() -> member.getId() + " in " + getContext() + " was settled meanwhile");
+                }
+            }
+        } catch (IOException | InterruptedException | RuntimeException x) {
+            if (!decided.isEmpty()) {
+                try {
+                    settleGroup(decided);
+                } catch (IOException | InterruptedException | RuntimeException x2) {
+                    x.addSuppressed(x2);
+                }
+            }
+            throw x;
+        }
+        return decided;
+    }
+
+    /**
+     * Finishes settling a group decided by {@link #decide}, saving the build once.
+     */
+    private HttpResponse settleGroup(Map<InputStepExecution, InputSubmittedAction> decided) throws IOException, InterruptedException {
+        try {
+            getPauseAction().removeAll(decided.keySet());
+        } catch (IOException | TimeoutException x) {
+            LOGGER.log(Level.WARNING, "failed to remove inputs from " + getContext(), x);
+        }
+        for (Map.Entry<InputStepExecution, InputSubmittedAction> entry : decided.entrySet()) {
+            entry.getKey().completeSettlement(entry.getValue());
+        }
+        return HttpResponses.ok();
+    }
+
+    /**
+     * Finishes a settlement decided by {@link #decide},
+     * once this execution has been removed from the {@link InputAction}: ends the pause and resumes the build.
+     */
+    void completeSettlement(@CheckForNull InputSubmittedAction submitted) throws IOException, InterruptedException {
+        endPause(submitted);
+        if (outcome.isFailure()) {
+            fire(InputEvent.Type.REJECTED, currentUserId(), null);
+            getContext().onFailure(outcome.getAbnormal());
+        } else {
+            fire(InputEvent.Type.APPROVED, submitted != null ? submitted.getApprover() : null, null);
+            getContext().onSuccess(outcome.getNormal());
+        }
+    }
+
+    /**
+     * Settles this input as per {@link InputStep#getTimeoutAction}, once its {@link InputStep#getTimeout} has elapsed.
+     * Called by {@link InputTimeouts} as {@link ACL#SYSTEM2}.
+     * Does nothing if the input is settled first, even while this is running.
+     */
+    void timeOut() throws IOException, InterruptedException {
+        if (isSettled()) {
+            return;
+        }
+        String after = "Timed out after " + input.getTimeout() + " " + input.getTimeoutUnit().name().toLowerCase(Locale.ROOT);
+        if (input.getTimeoutAction() == InputStep.TimeoutAction.PROCEED) {
+            Map<String, Object> params = defaultValues();
+            if (!claim(approval(params))) {
+                return; // settled meanwhile
+            }
+            getListener().getLogger().println(after + "; proceeding with default values");
+            InputSubmittedAction submitted = new InputSubmittedAction(null, params);
+            postSettlement(submitted);
+            fire(InputEvent.Type.APPROVED, null, TIMED_OUT);
+            getContext().onSuccess(outcome.getNormal());
+        } else {
+            FlowInterruptedException e = new FlowInterruptedException(Result.ABORTED, new TimedOut());
+            if (!claim(new Outcome(null, e))) {
+                return; // settled meanwhile
+            }
+            getListener().getLogger().println(after + "; aborting");
+            postSettlement(null);
+            fire(InputEvent.Type.REJECTED, null, TIMED_OUT);
+            getContext().onFailure(e);
+        }
+    }
+
+    /**
+     * The default value of each parameter, as for {@link #parseValue}.
+     */
+    @CheckForNull
+    private Map<String, Object> defaultValues() throws IOException, InterruptedException {
+        Map<String, Object> mapResult = new HashMap<>();
+        for (ParameterDefinition d : input.getParameters()) {
+            ParameterValue v = d.getDefaultParameterValue();
+            if (v != null) {
+                mapResult.put(d.getName(), convert(d.getName(), v));
+            }
+        }
+        return mapResult.isEmpty() ? null : mapResult;
+    }
+
+    /**
+     * Settles this input at once if a {@link PreApproval} applies to it, using up the pre-approval.
+     * Pre-approvals whose approver may not settle this input, or whose parameters do not fit it, are skipped and kept.
+     * Called by {@link #checkPreApprovals}, as this may wait for the security realm and the disk.
+     * @return true if the input was approved, or settled otherwise meanwhile, in which case the step has completed
+     */
+    private boolean preApproved(Run<?, ?> run, TaskListener listener, FlowNode node) throws IOException, InterruptedException {
+        PreApprovals preApprovals = PreApprovals.get();
+        Map<String, Authentication> authentications = new HashMap<>(); // each approver looked up once
+        for (PreApproval approval : preApprovals.candidates(run, getId())) {
+            User user = User.getById(approval.getApprover(), false);
+            if (!authentications.containsKey(approval.getApprover())) {
+                Authentication impersonated;
+                try {
+                    impersonated = user != null ? user.impersonate2() : null;
+                } catch (UsernameNotFoundException x) {
+                    impersonated = null;
+                }
+                authentications.put(approval.getApprover(), impersonated);
+            }
+            Authentication a = authentications.get(approval.getApprover());
+            if (a == null) {
+                listener.getLogger().println("Ignoring pre-approval " + approval.getToken() + " by unknown user " + approval.getApprover());
+                continue;
+            }
+            if (!canSettle(new AuthorizationCache(a))) {
+                listener.getLogger().println("Ignoring pre-approval " + approval.getToken() + " as " + approval.getApprover() + " may not approve this input");
+                continue;
+            }
+            Map<String, Object> mapResult = new HashMap<>();
+            List<ParameterValue> vals = new ArrayList<>();
+            try {
+                bindText(approval.getParameters(), Map.of(), mapResult, vals);
+            } catch (IllegalArgumentException x) {
+                listener.getLogger().println("Ignoring pre-approval " + approval.getToken() + ": " + x.getMessage());
+                continue;
+            }
+            if (!preApprovals.remove(approval)) {
+                continue; // used by another build meanwhile
+            }
+            String valueName = input.getSubmitterParameter();
+            if (valueName != null && !valueName.isEmpty()) {
+                mapResult.put(valueName, user.getId());
+            }
+            InputSubmittedAction submitted;
+            try {
+                submitted = approve(user, mapResult.isEmpty() ? null : mapResult);
+            } catch (Failure x) {
+                preApprovals.add(approval); // not used after all: stopped meanwhile
+                return true;
+            }
+            listener.getLogger().println(input.getMessage());
+            listener.getLogger().println("Using pre-approval " + approval.getToken());
+            bindCredentials(user.getId(), vals);
+            completeAtStart(run, node, submitted, PRE_APPROVED);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Settles this input at once if an {@link AutoApprovalRule} matches, with default parameter values.
+     * Rules approve as no user: the rule ID, after {@link AutoApprovalRule#APPROVER_PREFIX}, is recorded as the approver.
+     * @return true if the input was approved, in which case the step has completed
+     */
+    private boolean autoApproved(Run<?, ?> run, TaskListener listener, FlowNode node) throws IOException, InterruptedException {
+        List<AutoApprovalRule> candidates = AutoApprovalRules.get().candidates(run.getParent().getFullName(), getId());
+        if (candidates.isEmpty()) {
+            return false;
+        }
+        String branch = null;
+        if (candidates.stream().anyMatch(candidate -> candidate.getBranch() != null)) {
+            branch = BranchNames.of(run.getParent()); // if null, rules restricted to branches do not apply
+        }
+        AutoApprovalRule rule = AutoApprovalRules.first(candidates, branch, System.currentTimeMillis());
+        if (rule == null) {
+            return false;
+        }
+        Map<String, Object> mapResult = new HashMap<>();
+        try {
+            bindText(Map.of(), Map.of(), mapResult, new ArrayList<>());
+        } catch (IllegalArgumentException x) {
+            listener.getLogger().println("Ignoring rule " + rule.getId() + ": " + x.getMessage());
+            return false;
+        }
+        String approverId = AutoApprovalRule.APPROVER_PREFIX + rule.getId();
+        String valueName = input.getSubmitterParameter();
+        if (valueName != null && !valueName.isEmpty()) {
+            mapResult.put(valueName, approverId);
+        }
+        listener.getLogger().println(input.getMessage());
+        listener.getLogger().println("Approved by rule " + rule.getId());
+        InputSubmittedAction submitted = recordApproval(approverId, mapResult.isEmpty() ? null : mapResult);
+        completeAtStart(run, node, submitted, AUTO_APPROVED);
+        return true;
+    }
+
+    /**
+     * Finishes an approval decided by {@link #start} or {@link #checkPreApprovals}, without this input ever having been pending.
+     */
+    private void completeAtStart(Run<?, ?> run, FlowNode node, InputSubmittedAction submitted, String cause) throws IOException {
+        run.save();
+        node.addAction(submitted);
+        fire(InputEvent.Type.APPROVED, submitted.getApprover(), cause);
+        getContext().onSuccess(outcome.getNormal());
+    }
+
+    /**
+     * Binds parameter values given as text, by name, taking default values for parameters not given.
+     * @param values parameter values as text, by name; a null value counts as not given
+     * @param errors problems already found with some fields, by name
+     * @param mapResult receives values as for {@link #parseValue}
+     * @param vals receives the parameter values
+     * @throws InvalidParametersException if there were errors or some values could not be bound, listing every such field
+     */
+    private void bindText(Map<String, String> values, Map<String, String> errors, Map<String, Object> mapResult, List<ParameterValue> vals)
+            throws IOException, InterruptedException {
+        Map<String, ParameterDefinition> defs = input.getParametersByName();
+        Map<String, String> problems = new LinkedHashMap<>(errors);
+        for (Map.Entry<String, String> entry : values.entrySet()) {
+            String name = entry.getKey();
+            ParameterDefinition d = defs.get(name);
+            if (d == null) {
+                problems.put(name, "No such parameter");
+            } else if (entry.getValue() != null && !(d instanceof SimpleParameterDefinition)) {
+                problems.put(name, "Cannot be given as text");
+            }
+        }
+        for (ParameterDefinition d : defs.values()) {
+            String name = d.getName();
+            if (problems.containsKey(name)) {
+                continue;
+            }
+            String value = values.get(name);
+            ParameterValue v;
+            if (value == null) {
+                v = d.getDefaultParameterValue();
+            } else {
+                try {
+                    v = ((SimpleParameterDefinition) d).createValue(value);
+                } catch (IllegalArgumentException x) {
+                    problems.put(name, x.getMessage() != null ? x.getMessage() : "Invalid value");
+                    continue;
+                }
+            }
+            if (v != null) {
+                vals.add(v);
+                mapResult.put(name, convert(name, v));
+            }
+        }
+        if (!problems.isEmpty()) {
+            throw new InvalidParametersException(problems);
+        }
+    }
+
+    @CheckForNull
+    private static String currentUserId() {
+        User user = User.current();
+        return user != null ? user.getId() : null;
+    }
+
+    /**
+     * Announces a change in the state of this input to {@link InputEventStream} and {@link InputStepListener}s. Never blocks.
+     */
+    private void fire(InputEvent.Type type, @CheckForNull String user, @CheckForNull String cause) {
+        try {
+            InputEvent event = InputEvent.of(type, getRun(), input, user, cause);
+            InputEventStream.get().publish(event);
+            InputStepListener.fire(event);
+        } catch (IOException | RuntimeException x) {
+            LOGGER.log(Level.WARNING, "failed to announce " + type + " of " + getContext(), x);
+        } catch (InterruptedException x) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
     /**
      * Check if the current user can abort/cancel the run from the input.
      */
@@ -344,97 +910,83 @@ public class InputStepExecution extends AbstractStepExecutionImpl implements Mod
         }
     }
 
-    private void postSettlement() throws IOException, InterruptedException {
+    /**
+     * Records the settlement: the build is saved once, with this input removed from its {@link InputAction}
+     * along with whatever other build actions the caller has added, and then the node is written once,
+     * with its pause ended and the given action added.
+     */
+    private void postSettlement(@CheckForNull InputSubmittedAction submitted) throws IOException, InterruptedException {
         try {
             getPauseAction().remove(this);
-            getRun().save();
         } catch (IOException | InterruptedException | TimeoutException x) {
             LOGGER.log(Level.WARNING, "failed to remove InputAction from " + getContext(), x);
         } finally {
-            FlowNode node = getNode();
-            if (node != null) {
-                try {
-                    PauseAction.endCurrentPause(node);
-                } catch (IOException x) {
-                    LOGGER.log(Level.WARNING, "failed to end PauseAction in " + getContext(), x);
+            endPause(submitted);
+        }
+    }
+
+    /**
+     * Ends the pause of the node, writing it once, with the given action added.
+     */
+    private void endPause(@CheckForNull InputSubmittedAction submitted) throws IOException, InterruptedException {
+        FlowNode node = getNode();
+        if (node != null) {
+            try {
+                PauseAction pause = PauseAction.getCurrentPause(node);
+                if (pause != null) {
+                    pause.setEndTime(System.currentTimeMillis());
+                } else {
+                    LOGGER.log(Level.WARNING, "no current pause for {0} in {1}", new Object[] {getId(), getContext()});
                 }
-            } else {
-                LOGGER.log(Level.WARNING, "cannot set pause end time for {0} in {1}", new Object[] {getId(), getContext()});
+                if (submitted != null) {
+                    node.addAction(submitted); // also persists the pause end
+                } else {
+                    node.save();
+                }
+            } catch (IOException x) {
+                LOGGER.log(Level.WARNING, "failed to end PauseAction in " + getContext(), x);
             }
+        } else {
+            LOGGER.log(Level.WARNING, "cannot set pause end time for {0} in {1}", new Object[] {getId(), getContext()});
         }
     }
 
     private boolean canCancel() throws IOException, InterruptedException {
-        return !Jenkins.get().isUseSecurity() || getRun().getParent().hasPermission(Job.CANCEL);
+        AuthorizationCache cache = AuthorizationCache.get();
+        return !cache.isUseSecurity() || cache.hasPermission(getRun().getParent(), Job.CANCEL);
     }
 
     private boolean canSubmit() throws IOException, InterruptedException {
-        Authentication a = Jenkins.getAuthentication();
-        return canSettle(a);
+        return canSettle(AuthorizationCache.get());
     }
 
     /**
-     * Checks if the given user can settle this input.
+     * Checks if the user of the given cache can settle this input.
      */
-    private boolean canSettle(Authentication a) throws IOException, InterruptedException {
-        String submitter = input.getSubmitter();
-        if (submitter==null)
-            return getRun().getParent().hasPermission(Job.BUILD);
-        if (!Jenkins.get().isUseSecurity() || Jenkins.get().hasPermission(Jenkins.ADMINISTER)) {
-            return true;
-        }
-        final Set<String> submitters = new HashSet<>();
-        Collections.addAll(submitters, submitter.split(","));
-        final SecurityRealm securityRealm = Jenkins.get().getSecurityRealm();
-        if (isMemberOf(a.getName(), submitters, securityRealm.getUserIdStrategy()))
+    private boolean canSettle(AuthorizationCache cache) throws IOException, InterruptedException {
+        SubmitterMatcher matcher = input.getSubmitterMatcher();
+        if (matcher == null)
+            return cache.hasPermission(getRun().getParent(), Job.BUILD);
+        if (!cache.isUseSecurity() || cache.hasPermission(Jenkins.get(), Jenkins.ADMINISTER)) {
             return true;
-        for (GrantedAuthority ga : a.getAuthorities()) {
-            if (isMemberOf(ga.getAuthority(), submitters, securityRealm.getGroupIdStrategy()))
-                return true;
-        }
-        return false;
-    }
-
-    /**
-     * Checks if the provided userId is contained in the submitters list, using {@link SecurityRealm#getUserIdStrategy()} comparison algorithm.
-     * Main goal is to respect here the case sensitivity settings of the current security realm
-     * (which default behavior is case insensitivity).
-     *
-     * @param userId the id of the user if it is matching one of the submitters using {@link IdStrategy#equals(String, String)}
-     * @param submitters the list of authorized submitters
-     * @param idStrategy the idStrategy impl to use for comparison
-     * @return true is userId was found in submitters, false if not.
-     *
-     * @see {@link jenkins.model.IdStrategy#CASE_INSENSITIVE}.
-     */
-    private boolean isMemberOf(String userId, Set<String> submitters, IdStrategy idStrategy) {
-        for (String submitter : submitters) {
-            if (idStrategy.equals(userId, submitter.trim())) {
-                return true;
-            }
         }
-        return false;
+        return cache.isSubmitter(input.getSubmitter(), matcher);
     }
 
     /**
      * Parse the submitted {@link ParameterValue}s
+     * @param vals receives the parameter values, for {@link #bindCredentials}
      */
-    private Map<String,Object> parseValue(StaplerRequest2 request) throws ServletException, IOException, InterruptedException {
+    private Map<String,Object> parseValue(StaplerRequest2 request, @CheckForNull Object params, Collection<ParameterValue> vals) throws ServletException, IOException, InterruptedException {
         Map<String, Object> mapResult = new HashMap<String, Object>();
-        List<ParameterDefinition> defs = input.getParameters();
-        Set<ParameterValue> vals = new HashSet<>(defs.size());
+        Map<String, ParameterDefinition> defs = input.getParametersByName();
 
-        Object params = request.getSubmittedForm().get("parameter");
         if (params!=null) {
             for (Object o : JSONArray.fromObject(params)) {
                 JSONObject jo = (JSONObject) o;
                 String name = jo.getString("name");
 
-                ParameterDefinition d=null;
-                for (ParameterDefinition def : defs) {
-                    if (def.getName().equals(name))
-                        d = def;
-                }
+                ParameterDefinition d = defs.get(name);
                 if (d == null)
                     throw new IllegalArgumentException("No such parameter definition: " + name);
 
@@ -447,15 +999,7 @@ public class InputStepExecution extends AbstractStepExecutionImpl implements Mod
             }
         }
 
-        Run<?, ?> run = getRun();
-        CredentialsParameterBinder binder = CredentialsParameterBinder.getOrCreate(run);
         String userId = Jenkins.getAuthentication2().getName();
-        for (ParameterValue val : vals) {
-            if (val instanceof CredentialsParameterValue) {
-                binder.bindCredentialsParameter(userId, (CredentialsParameterValue) val);
-            }
-        }
-        run.replaceAction(binder);
 
         // If a destination value is specified, push the submitter to it.
         String valueName = input.getSubmitterParameter();
@@ -470,6 +1014,25 @@ public class InputStepExecution extends AbstractStepExecutionImpl implements Mod
         }
     }
 
+    /**
+     * Lets the build use credentials parameters as the given user.
+     * Only done once the input is approved, as the binding outlives it.
+     */
+    private void bindCredentials(String userId, Collection<ParameterValue> vals) throws IOException, InterruptedException {
+        CredentialsParameterBinder binder = null;
+        for (ParameterValue val : vals) {
+            if (val instanceof CredentialsParameterValue) {
+                if (binder == null) {
+                    binder = CredentialsParameterBinder.getOrCreate(getRun());
+                }
+                binder.bindCredentialsParameter(userId, (CredentialsParameterValue) val);
+            }
+        }
+        if (binder != null) {
+            getRun().replaceAction(binder); // saved along with the settlement
+        }
+    }
+
     private Object convert(String name, ParameterValue v) throws IOException, InterruptedException {
         if (v instanceof FileParameterValue) {  // SECURITY-2705
             if (isAllowUnsafeParameters()) {
@@ -491,12 +1054,30 @@ public class InputStepExecution extends AbstractStepExecutionImpl implements Mod
 
     @Restricted(NoExternalUse.class) // jelly access only
     public boolean getHasUnsafeParameters() {
-        return input.getParameters().stream().anyMatch(parameter -> parameter.getClass() == FileParameterDefinition.class);
+        return input.hasUnsafeParameters();
     }
 
     @Restricted(NoExternalUse.class) // jelly access only
     public boolean getHasUnsafeId() {
-        return ! input.getDescriptor().doCheckId(input.getId()).kind.equals(Kind.OK);
+        return input.hasUnsafeId();
+    }
+
+    @Restricted(NoExternalUse.class) // jelly access only
+    public boolean isLazyChoices(ParameterDefinition definition) {
+        return LazyChoices.isLazy(definition);
+    }
+
+    @Restricted(NoExternalUse.class) // jelly access only
+    public String getChoicesUrl() {
+        return LazyChoices.url(getId());
+    }
+
+    /**
+     * Lists a page of the choices of a parameter with too many of them to be rendered in the form.
+     * @see LazyChoices
+     */
+    public HttpResponse doChoices(@QueryParameter String name, @QueryParameter String q, @QueryParameter int start, @QueryParameter int limit) {
+        return LazyChoices.page(input, name, q, start, limit);
     }
 
     private static final long serialVersionUID = 1L;
@@ -0,0 +1,189 @@
+package org.jenkinsci.plugins.workflow.support.steps.input;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import hudson.util.DaemonThreadFactory;
+import hudson.util.NamingThreadFactory;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import jenkins.util.ClassLoaderSanityThreadFactory;
+import jenkins.util.SystemProperties;
+import jenkins.util.Timer;
+import org.kohsuke.accmod.Restricted;
+import org.kohsuke.accmod.restrictions.NoExternalUse;
+
+/**
+ * Runs background work of the input step, such as settling inputs of stopped builds,
+ * so that a mass abort does not hold up the shared {@link Timer}.
+ * <p>
+ * Tasks wait in a bounded queue. Submitting never blocks, as tasks are submitted from the CPS VM thread and from {@link Timer}:
+ * if the queue is full the task is handed to a dedicated overflow pool with an unbounded queue instead, and counted as overflow,
+ * since settlement work must not be dropped, nor pushed onto {@link Timer}.
+ */
+@Restricted(NoExternalUse.class)
+public final class InputStepExecutor {
+
+    private static final Logger LOGGER = Logger.getLogger(InputStepExecutor.class.getName());
+
+    @SuppressWarnings("FieldMayBeFinal")
+    private static /* not final */ int THREADS = SystemProperties.getInteger(InputStepExecutor.class.getName() + ".THREADS", 4);
+    @SuppressWarnings("FieldMayBeFinal")
+    private static /* not final */ int QUEUE_CAPACITY = SystemProperties.getInteger(InputStepExecutor.class.getName() + ".QUEUE_CAPACITY", 10_000);
+    /** Whether to run tasks on virtual threads, when the Java runtime supports them. */
+    @SuppressWarnings("FieldMayBeFinal")
+    private static /* not final */ boolean VIRTUAL_THREADS = SystemProperties.getBoolean(InputStepExecutor.class.getName() + ".VIRTUAL_THREADS");
+
+    /** Number of latest tasks whose latency is reported. */
+    static final int RECENT = 100;
+
+    private static InputStepExecutor instance;
+
+    @NonNull
+    public static synchronized InputStepExecutor get() {
+        if (instance == null) {
+            ThreadPoolExecutor overflow = new ThreadPoolExecutor(THREADS, THREADS, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+                    new NamingThreadFactory(new ClassLoaderSanityThreadFactory(threadFactory(VIRTUAL_THREADS)), "InputStepExecutor overflow"));
+            overflow.allowCoreThreadTimeOut(true);
+            instance = new InputStepExecutor(THREADS, QUEUE_CAPACITY, VIRTUAL_THREADS, overflow);
+        }
+        return instance;
+    }
+
+    private final ThreadPoolExecutor executor;
+    private final Executor overflow;
+    private final int capacity;
+
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong overflowed = new AtomicLong();
+    /** Latencies of the latest tasks, in nanoseconds, as a ring. */
+    private final long[] recentLatencyNanos = new long[RECENT];
+    private int recentCount;
+    private int recentNext;
+
+    InputStepExecutor(int threads, int capacity, boolean virtualThreads, @NonNull Executor overflow) {
+        this.capacity = capacity;
+        this.overflow = overflow;
+        executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS, new ArrayBlockingQueue<>(capacity),
+                new NamingThreadFactory(new ClassLoaderSanityThreadFactory(threadFactory(virtualThreads)), "InputStepExecutor"));
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    private static ThreadFactory threadFactory(boolean virtualThreads) {
+        if (virtualThreads) {
+            try {
+                // Thread.ofVirtual().factory(), on Java 21 and newer
+                Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+                return (ThreadFactory) Class.forName("java.lang.Thread$Builder").getMethod("factory").invoke(builder);
+            } catch (ReflectiveOperationException | RuntimeException x) {
+                LOGGER.log(Level.WARNING, "virtual threads are not available, using platform threads", x);
+            }
+        }
+        return new DaemonThreadFactory();
+    }
+
+    /**
+     * Schedules a task. Never blocks.
+     */
+    public void submit(@NonNull Runnable task) {
+        Runnable timed = new Timed(task, System.nanoTime());
+        try {
+            executor.execute(timed);
+        } catch (RejectedExecutionException x) {
+            overflowed.incrementAndGet();
+            LOGGER.fine(() -> "queue full, handing task to overflow executor: " + task);
+            overflow.execute(timed);
+        }
+    }
+
+    /**
+     * @return number of tasks waiting to run
+     */
+    public int getQueueDepth() {
+        return executor.getQueue().size();
+    }
+
+    public int getQueueCapacity() {
+        return capacity;
+    }
+
+    /**
+     * @return number of tasks completed so far, including overflow
+     */
+    public long getCompletedTasks() {
+        return completed.get();
+    }
+
+    /**
+     * @return number of tasks which found the queue full
+     */
+    public long getOverflowedTasks() {
+        return overflowed.get();
+    }
+
+    /**
+     * @return number of latest tasks covered by {@link #getAverageLatencyMillis} and {@link #getMaxLatencyMillis}, at most {@value #RECENT}
+     */
+    public synchronized int getRecentTasks() {
+        return recentCount;
+    }
+
+    /**
+     * @return mean time from submission to completion of the latest tasks
+     */
+    public synchronized long getAverageLatencyMillis() {
+        long total = 0;
+        for (int i = 0; i < recentCount; i++) {
+            total += recentLatencyNanos[i];
+        }
+        return recentCount == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(total / recentCount);
+    }
+
+    /**
+     * @return longest time from submission to completion of the latest tasks
+     */
+    public synchronized long getMaxLatencyMillis() {
+        long max = 0;
+        for (int i = 0; i < recentCount; i++) {
+            max = Math.max(max, recentLatencyNanos[i]);
+        }
+        return TimeUnit.NANOSECONDS.toMillis(max);
+    }
+
+    private synchronized void recordLatency(long nanos) {
+        recentLatencyNanos[recentNext] = nanos;
+        recentNext = (recentNext + 1) % RECENT;
+        recentCount = Math.min(recentCount + 1, RECENT);
+    }
+
+    private final class Timed implements Runnable {
+        private final Runnable task;
+        private final long submitted;
+
+        Timed(Runnable task, long submitted) {
+            this.task = task;
+            this.submitted = submitted;
+        }
+
+        @Override public void run() {
+            try {
+                task.run();
+            } catch (RuntimeException x) {
+                LOGGER.log(Level.WARNING, null, x);
+            } finally {
+                recordLatency(System.nanoTime() - submitted);
+                completed.incrementAndGet();
+            }
+        }
+
+        @Override public String toString() {
+            return task.toString();
+        }
+    }
+}
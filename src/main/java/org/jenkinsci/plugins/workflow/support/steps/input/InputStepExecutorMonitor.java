@@ -0,0 +1,29 @@
+package org.jenkinsci.plugins.workflow.support.steps.input;
+
+import hudson.Extension;
+import hudson.model.AdministrativeMonitor;
+import org.kohsuke.accmod.Restricted;
+import org.kohsuke.accmod.restrictions.NoExternalUse;
+
+/**
+ * Warns when the {@link InputStepExecutor} queue is filling up, for example during a mass abort.
+ */
+@Extension
+@Restricted(NoExternalUse.class)
+public class InputStepExecutorMonitor extends AdministrativeMonitor {
+
+    @Override
+    public String getDisplayName() {
+        return Messages.input_step_executor_backlog();
+    }
+
+    @Override
+    public boolean isActivated() {
+        InputStepExecutor executor = getExecutor();
+        return executor.getQueueDepth() >= executor.getQueueCapacity() / 2;
+    }
+
+    public InputStepExecutor getExecutor() {
+        return InputStepExecutor.get();
+    }
+}
@@ -0,0 +1,176 @@
+package org.jenkinsci.plugins.workflow.support.steps.input;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import hudson.ExtensionList;
+import hudson.ExtensionPoint;
+import hudson.util.DaemonThreadFactory;
+import hudson.util.NamingThreadFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import jenkins.util.SystemProperties;
+
+/**
+ * Receives notice of what happens to inputs, for example to send chat notifications, audit or collect metrics.
+ * <p>
+ * Callbacks run on a background thread, never on the thread handling the request or running the program,
+ * so a slow listener cannot delay the build or the person approving it.
+ * Each listener has its own queue and thread, so a slow listener cannot delay other listeners either.
+ * Events are delivered in batches, in the order they happened; by default {@link #onEvents} calls
+ * the method for the type of each event.
+ */
+public abstract class InputStepListener implements ExtensionPoint {
+
+    private static final Logger LOGGER = Logger.getLogger(InputStepListener.class.getName());
+
+    /** Maximum number of events waiting for delivery to each listener; beyond that, its events are dropped. */
+    @SuppressWarnings("FieldMayBeFinal")
+    private static /* not final */ int QUEUE_CAPACITY = SystemProperties.getInteger(InputStepListener.class.getName() + ".QUEUE_CAPACITY", 10_000);
+    /** Maximum number of events delivered in one call to {@link #onEvents}. */
+    @SuppressWarnings("FieldMayBeFinal")
+    private static /* not final */ int BATCH_SIZE = SystemProperties.getInteger(InputStepListener.class.getName() + ".BATCH_SIZE", 100);
+    /** Milliseconds beyond which a call to {@link #onEvents} is reported as slow. */
+    @SuppressWarnings("FieldMayBeFinal")
+    private static /* not final */ long SLOW_MILLIS = SystemProperties.getLong(InputStepListener.class.getName() + ".SLOW_MILLIS", 10_000L);
+
+    /** Events waiting for this listener, created on first use; dropped along with the listener should its extension list be refreshed. */
+    private volatile Channel channel;
+
+    /**
+     * Called when a build pauses for input.
+     */
+    public void onPaused(@NonNull InputEvent event) {}
+
+    /**
+     * Called when someone approves an input.
+     */
+    public void onApproved(@NonNull InputEvent event) {}
+
+    /**
+     * Called when someone rejects an input.
+     */
+    public void onRejected(@NonNull InputEvent event) {}
+
+    /**
+     * Called when the input step is stopped, such as when the build is aborted.
+     */
+    public void onStopped(@NonNull InputEvent event) {}
+
+    /**
+     * Called with events which happened since the last call, oldest first.
+     * Override to handle them together.
+     */
+    public void onEvents(@NonNull List<InputEvent> events) {
+        for (InputEvent event : events) {
+            switch (event.getType()) {
+                case PAUSED:
+                    onPaused(event);
+                    break;
+                case APPROVED:
+                    onApproved(event);
+                    break;
+                case REJECTED:
+                    onRejected(event);
+                    break;
+                case STOPPED:
+                    onStopped(event);
+                    break;
+                default:
+                    throw new AssertionError(event.getType());
+            }
+        }
+    }
+
+    public static ExtensionList<InputStepListener> all() {
+        return ExtensionList.lookup(InputStepListener.class);
+    }
+
+    /**
+     * Queues an event for delivery to all listeners. Never blocks.
+     */
+    static void fire(@NonNull InputEvent event) {
+        for (InputStepListener listener : all()) {
+            listener.channel().fire(event);
+        }
+    }
+
+    private Channel channel() {
+        Channel c = channel;
+        if (c == null) {
+            synchronized (this) {
+                c = channel;
+                if (c == null) {
+                    channel = c = new Channel(this);
+                }
+            }
+        }
+        return c;
+    }
+
+    /** Delivers events to listeners, one thread per listener at most, apart from the threads settling inputs. */
+    private static final ExecutorService DELIVERY = Executors.newCachedThreadPool(new NamingThreadFactory(new DaemonThreadFactory(), "InputStepListener"));
+
+    /**
+     * Queue of events for one listener, drained by its own task, so that a slow listener only ever delays itself.
+     */
+    private static final class Channel {
+
+        private final InputStepListener listener;
+        private final BlockingQueue<InputEvent> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        private final AtomicLong dropped = new AtomicLong();
+
+        Channel(InputStepListener listener) {
+            this.listener = listener;
+        }
+
+        void fire(InputEvent event) {
+            if (!queue.offer(event)) {
+                long n = dropped.incrementAndGet();
+                LOGGER.log(n == 1 || n % 1000 == 0 ? Level.WARNING : Level.FINE, "dropped {0} events since {1} is not keeping up", new Object[] {n, listener});
+                return;
+            }
+            schedule();
+        }
+
+        private void schedule() {
+            if (scheduled.compareAndSet(false, true)) {
+                DELIVERY.execute(this::drain);
+            }
+        }
+
+        private void drain() {
+            try {
+                List<InputEvent> batch = new ArrayList<>(BATCH_SIZE);
+                while (queue.drainTo(batch, BATCH_SIZE) > 0) {
+                    List<InputEvent> events = List.copyOf(batch);
+                    batch.clear();
+                    long start = System.nanoTime();
+                    try {
+                        listener.onEvents(events);
+                    } catch (RuntimeException x) {
+                        LOGGER.log(Level.WARNING, "failed to deliver input events to " + listener, x);
+                    }
+                    long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+                    if (millis > SLOW_MILLIS) {
+                        LOGGER.log(Level.WARNING, "{0} took {1} ms to handle {2} input events; events are dropped once {3} are waiting",
+                                new Object[] {listener, millis, events.size(), QUEUE_CAPACITY});
+                    }
+                }
+            } finally {
+                scheduled.set(false);
+            }
+            if (!queue.isEmpty()) {
+                schedule(); // fired after the last drainTo
+            }
+        }
+    }
+}
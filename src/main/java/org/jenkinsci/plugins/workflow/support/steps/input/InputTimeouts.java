@@ -0,0 +1,145 @@
+package org.jenkinsci.plugins.workflow.support.steps.input;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import hudson.Extension;
+import hudson.ExtensionList;
+import hudson.model.Run;
+import hudson.security.ACL;
+import hudson.security.ACLContext;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import jenkins.util.SystemProperties;
+import jenkins.util.Timer;
+import org.kohsuke.accmod.Restricted;
+import org.kohsuke.accmod.restrictions.NoExternalUse;
+
+/**
+ * Times out pending inputs which have {@link InputStep#getTimeout}.
+ * All deadlines are kept in one {@link TimerWheel}, advanced by a single periodic task while any are pending,
+ * rather than one scheduled task per input.
+ * Deadlines are derived from what {@link PendingInputRegistry} knows of each input, and so are rescheduled after a restart
+ * from the snapshots persisted by {@link InputAction}; the execution is only restored when its deadline passes.
+ */
+@Extension
+@Restricted(NoExternalUse.class)
+public final class InputTimeouts {
+
+    private static final Logger LOGGER = Logger.getLogger(InputTimeouts.class.getName());
+
+    /** Resolution of deadlines, in milliseconds. */
+    @SuppressWarnings("FieldMayBeFinal")
+    private static /* not final */ long TICK = SystemProperties.getLong(InputTimeouts.class.getName() + ".TICK", 1000L);
+    /** Delay before trying again to time out an input whose execution could not be restored, in milliseconds. */
+    private static final long RETRY = TimeUnit.MINUTES.toMillis(1);
+
+    private static final class Key {
+        final String runId;
+        final String id;
+
+        Key(String runId, String id) {
+            this.runId = runId;
+            this.id = id;
+        }
+
+        @Override public boolean equals(Object o) {
+            return o instanceof Key && ((Key) o).runId.equals(runId) && ((Key) o).id.equals(id);
+        }
+
+        @Override public int hashCode() {
+            return Objects.hash(runId, id);
+        }
+
+        @Override public String toString() {
+            return runId + "/" + id;
+        }
+    }
+
+    private final TimerWheel<Key> wheel = new TimerWheel<>(TICK, System.currentTimeMillis());
+    /** Live entries of {@link #wheel}. */
+    private final Map<Key, TimerWheel.Entry<Key>> entries = new HashMap<>();
+    private ScheduledFuture<?> ticker;
+
+    @NonNull
+    static InputTimeouts get() {
+        return ExtensionList.lookupSingleton(InputTimeouts.class);
+    }
+
+    /**
+     * Schedules an input to time out, replacing any deadline it had.
+     */
+    synchronized void schedule(@NonNull String runId, @NonNull String id, long deadline) {
+        Key key = new Key(runId, id);
+        TimerWheel.Entry<Key> old = entries.remove(key);
+        if (old != null) {
+            old.cancel();
+        }
+        if (entries.isEmpty()) {
+            wheel.reset(System.currentTimeMillis()); // nothing live to expire in between
+        }
+        entries.put(key, wheel.schedule(key, deadline));
+        if (ticker == null) {
+            ticker = Timer.get().scheduleWithFixedDelay(this::tick, TICK, TICK, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    synchronized void cancel(@NonNull String runId, @NonNull String id) {
+        TimerWheel.Entry<Key> entry = entries.remove(new Key(runId, id));
+        if (entry != null) {
+            entry.cancel();
+        }
+    }
+
+    synchronized int size() {
+        return entries.size();
+    }
+
+    private void tick() {
+        List<TimerWheel.Entry<Key>> expired;
+        synchronized (this) {
+            expired = wheel.advance(System.currentTimeMillis());
+            expired.removeIf(entry -> !entries.remove(entry.item, entry));
+            if (entries.isEmpty() && ticker != null) {
+                ticker.cancel(false);
+                ticker = null;
+            }
+        }
+        for (TimerWheel.Entry<Key> entry : expired) {
+            InputStepExecutor.get().submit(new Runnable() {
+                @Override public void run() {
+                    timeOut(entry.item);
+                }
+                @Override public String toString() {
+                    return "timing out " + entry.item;
+                }
+            });
+        }
+    }
+
+    private void timeOut(Key key) {
+        try (ACLContext context = ACL.as2(ACL.SYSTEM2)) {
+            Run<?, ?> run = Run.fromExternalizableId(key.runId);
+            InputAction action = run == null ? null : run.getAction(InputAction.class);
+            InputStepExecution execution = action == null ? null : action.getExecution(key.id);
+            if (execution == null) {
+                LOGGER.fine(() -> "no longer pending: " + key);
+                return;
+            }
+            execution.timeOut();
+        } catch (TimeoutException x) {
+            LOGGER.log(Level.WARNING, "could not restore " + key + " to time it out, will retry", x);
+            schedule(key.runId, key.id, System.currentTimeMillis() + RETRY);
+        } catch (InterruptedException x) {
+            Thread.currentThread().interrupt();
+        } catch (IOException | RuntimeException x) {
+            LOGGER.log(Level.WARNING, "failed to time out " + key, x);
+        }
+    }
+}
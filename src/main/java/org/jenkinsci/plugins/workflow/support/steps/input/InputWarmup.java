@@ -0,0 +1,158 @@
+package org.jenkinsci.plugins.workflow.support.steps.input;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import hudson.Extension;
+import hudson.ExtensionList;
+import hudson.model.Run;
+import hudson.model.listeners.ItemListener;
+import hudson.security.ACL;
+import hudson.security.ACLContext;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import jenkins.util.SystemProperties;
+import jenkins.util.Timer;
+import org.kohsuke.accmod.Restricted;
+import org.kohsuke.accmod.restrictions.NoExternalUse;
+import org.kohsuke.stapler.export.Exported;
+import org.kohsuke.stapler.export.ExportedBean;
+
+/**
+ * Optionally restores the pending inputs of all paused builds after a restart, most recently paused first,
+ * so that the first visitor of each build does not have to wait for its program to load.
+ * Enabled by setting {@code PARALLELISM} to the number of builds to restore at a time.
+ * Progress is logged, and shown by {@link PendingInputRegistry#getWarmUp}.
+ */
+@Extension(ordinal = -100) // after FlowExecutionList has loaded the running builds
+@ExportedBean
+@Restricted(NoExternalUse.class)
+public final class InputWarmup extends ItemListener {
+
+    private static final Logger LOGGER = Logger.getLogger(InputWarmup.class.getName());
+
+    private static int parallelism() {
+        return SystemProperties.getInteger(InputWarmup.class.getName() + ".PARALLELISM", 0);
+    }
+
+    private final Queue<InputAction> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger total = new AtomicInteger();
+    private final AtomicInteger restored = new AtomicInteger();
+    private final AtomicInteger failed = new AtomicInteger();
+    private volatile boolean enabled;
+    private volatile boolean started;
+
+    @NonNull
+    static InputWarmup get() {
+        return ExtensionList.lookupSingleton(InputWarmup.class);
+    }
+
+    @Override
+    public void onLoaded() {
+        int parallelism = parallelism();
+        if (parallelism > 0) {
+            enabled = true;
+            Timer.get().submit(() -> start(parallelism));
+        }
+    }
+
+    private void start(int parallelism) {
+        List<Candidate> candidates = new ArrayList<>();
+        try (ACLContext context = ACL.as2(ACL.SYSTEM2)) {
+            for (Map.Entry<String, Long> entry : PendingInputRegistry.get().unrestoredRuns().entrySet()) {
+                Run<?, ?> run = Run.fromExternalizableId(entry.getKey());
+                InputAction action = run == null ? null : run.getAction(InputAction.class);
+                if (action != null && action.isRestoring()) {
+                    // the pause time is unknown for inputs started by older versions; the build cannot have paused before it started
+                    long since = entry.getValue() > 0 ? entry.getValue() : run.getStartTimeInMillis();
+                    candidates.add(new Candidate(action, since));
+                }
+            }
+        } catch (RuntimeException x) {
+            LOGGER.log(Level.WARNING, "failed to list paused builds", x);
+        }
+        candidates.sort(Comparator.comparingLong((Candidate c) -> c.since).reversed());
+        for (Candidate c : candidates) {
+            queue.add(c.action);
+        }
+        total.set(candidates.size());
+        started = true;
+        LOGGER.info(() -> "restoring pending inputs of " + candidates.size() + " builds, " + parallelism + " at a time");
+        for (int i = 0; i < parallelism; i++) {
+            next();
+        }
+    }
+
+    /**
+     * Restores the next build in the queue, then the one after that, and so on.
+     * Never blocks a thread while a program loads.
+     */
+    private void next() {
+        InputAction action = queue.poll();
+        if (action == null) {
+            return;
+        }
+        action.warmUp().whenCompleteAsync((index, x) -> {
+            if (index == null) {
+                failed.incrementAndGet();
+                LOGGER.fine(() -> "could not restore pending inputs of " + action.getRun());
+            } else {
+                restored.incrementAndGet();
+            }
+            progress();
+            next();
+        }, InputStepExecutor.get()::submit);
+    }
+
+    private void progress() {
+        int done = restored.get() + failed.get();
+        int n = total.get();
+        if (done == n) {
+            LOGGER.info(() -> "restored pending inputs of " + restored.get() + " builds; " + failed.get() + " failed");
+        } else if (n >= 10 && done % (n / 10) == 0) {
+            LOGGER.info(() -> "restored pending inputs of " + done + " out of " + n + " builds");
+        }
+    }
+
+    boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Number of paused builds found after the restart.
+     */
+    @Exported
+    public int getTotal() {
+        return total.get();
+    }
+
+    @Exported
+    public int getRestored() {
+        return restored.get();
+    }
+
+    @Exported
+    public int getFailed() {
+        return failed.get();
+    }
+
+    @Exported
+    public boolean isDone() {
+        return started && queue.isEmpty() && restored.get() + failed.get() == total.get();
+    }
+
+    private static final class Candidate {
+        final InputAction action;
+        final long since;
+
+        Candidate(InputAction action, long since) {
+            this.action = action;
+            this.since = since;
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package org.jenkinsci.plugins.workflow.support.steps.input;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Thrown when submitted parameter values cannot be bound, listing the problem with each field.
+ */
+final class InvalidParametersException extends IllegalArgumentException {
+
+    private final LinkedHashMap<String, String> errors;
+
+    InvalidParametersException(@NonNull Map<String, String> errors) {
+        super(errors.entrySet().stream().map(e -> e.getKey() + ": " + e.getValue()).collect(Collectors.joining("; ")));
+        this.errors = new LinkedHashMap<>(errors);
+    }
+
+    /**
+     * Messages by parameter name.
+     */
+    @NonNull
+    Map<String, String> getErrors() {
+        return Collections.unmodifiableMap(errors);
+    }
+
+    private static final long serialVersionUID = 1L;
+}
@@ -0,0 +1,89 @@
+package org.jenkinsci.plugins.workflow.support.steps.input;
+
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import hudson.Util;
+import hudson.model.ChoiceParameterDefinition;
+import hudson.model.ParameterDefinition;
+import hudson.model.Run;
+import hudson.util.HttpResponses;
+import java.util.ArrayList;
+import java.util.List;
+import jenkins.util.SystemProperties;
+import net.sf.json.JSONObject;
+import org.kohsuke.stapler.HttpResponse;
+import org.kohsuke.stapler.Stapler;
+import org.kohsuke.stapler.StaplerRequest2;
+
+/**
+ * Serves the choices of a {@link ChoiceParameterDefinition} with too many of them to be rendered in the input form,
+ * a page at a time and optionally filtered, as {@code choices?name=…&q=…&start=…&limit=…} under the input.
+ * The form renders only the default choice of such a parameter and {@code lazy-choices.js} fetches the rest
+ * as the user searches or scrolls.
+ */
+final class LazyChoices {
+
+    /** Number of choices above which a parameter is loaded lazily. */
+    @SuppressWarnings("FieldMayBeFinal")
+    private static /* not final */ int THRESHOLD = SystemProperties.getInteger(LazyChoices.class.getName() + ".THRESHOLD", 100);
+
+    static final int PAGE = 50;
+    private static final int MAX_PAGE = 500;
+
+    private LazyChoices() {}
+
+    static boolean isLazy(@NonNull ParameterDefinition definition) {
+        return definition instanceof ChoiceParameterDefinition && ((ChoiceParameterDefinition) definition).getChoices().size() > THRESHOLD;
+    }
+
+    /**
+     * URL of the choices of an input, from the root of the server, so that they are found
+     * even when the form is fetched as a dialog and embedded in some other page.
+     */
+    @NonNull
+    static String url(@NonNull String id) {
+        StaplerRequest2 req = Stapler.getCurrentRequest2();
+        Run<?, ?> run = req.findAncestorObject(Run.class);
+        if (run == null) { // not rendered under a build
+            return Util.rawEncode(id) + "/choices";
+        }
+        return req.getContextPath() + '/' + run.getUrl() + "input/" + Util.rawEncode(id) + "/choices";
+    }
+
+    /**
+     * Answers {@code {"choices": [...], "start": 0, "total": 1234}}, {@code total} counting the choices matching {@code q}.
+     */
+    @NonNull
+    static HttpResponse page(@NonNull InputStep input, @CheckForNull String name, @CheckForNull String q, int start, int limit) {
+        ParameterDefinition definition = name == null ? null : input.getParametersByName().get(name);
+        if (definition == null || !isLazy(definition)) {
+            return HttpResponses.errorJSON("No such parameter loaded lazily: " + name);
+        }
+        if (start < 0) {
+            start = 0;
+        }
+        limit = limit <= 0 ? PAGE : Math.min(limit, MAX_PAGE);
+        String query = q == null ? "" : q.trim();
+        List<String> page = new ArrayList<>();
+        int total = 0;
+        for (String choice : ((ChoiceParameterDefinition) definition).getChoices()) {
+            if (!containsIgnoreCase(choice, query)) {
+                continue;
+            }
+            if (total >= start && page.size() < limit) {
+                page.add(choice);
+            }
+            total++;
+        }
+        return HttpResponses.okJSON(new JSONObject().element("choices", page).element("start", start).element("total", total));
+    }
+
+    private static boolean containsIgnoreCase(String text, String query) {
+        for (int i = 0; i <= text.length() - query.length(); i++) {
+            if (text.regionMatches(true, i, query, 0, query.length())) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
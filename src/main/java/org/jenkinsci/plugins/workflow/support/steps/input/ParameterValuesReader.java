@@ -0,0 +1,204 @@
+package org.jenkinsci.plugins.workflow.support.steps.input;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Reads parameter values from a JSON object such as {@code {"version": "1.2", "dryRun": true}} one token at a time,
+ * straight from the request body, without building a JSON tree.
+ * Strings, numbers and booleans are kept as their text; {@code null} means the parameter was not given.
+ * Nested objects and arrays, and repeated names, are skipped and reported as errors of their field.
+ */
+final class ParameterValuesReader {
+
+    private final Reader in;
+    private int next = -2; // not yet read
+    private int position;
+
+    private ParameterValuesReader(Reader in) {
+        this.in = in;
+    }
+
+    /**
+     * Reads the values.
+     * @param errors receives a message for each field whose value cannot be used, by name
+     * @return text of the values by name, in order
+     * @throws IllegalArgumentException if the body is not a JSON object
+     */
+    @NonNull
+    static Map<String, String> read(@NonNull Reader in, @NonNull Map<String, String> errors) throws IOException {
+        return new ParameterValuesReader(in).readObject(errors);
+    }
+
+    private Map<String, String> readObject(Map<String, String> errors) throws IOException {
+        Map<String, String> values = new LinkedHashMap<>();
+        Set<String> seen = new HashSet<>();
+        expect('{');
+        if (peekToken() == '}') {
+            read();
+        } else {
+            while (true) {
+                if (peekToken() != '"') {
+                    throw malformed("expected a parameter name");
+                }
+                String name = readString();
+                expect(':');
+                int c = peekToken();
+                if (!seen.add(name)) {
+                    errors.put(name, "Given more than once");
+                }
+                if (c == '{' || c == '[') {
+                    skipValue();
+                    errors.putIfAbsent(name, "Expected a string, number or boolean");
+                } else {
+                    values.put(name, readScalar());
+                }
+                c = readToken();
+                if (c == '}') {
+                    break;
+                }
+                if (c != ',') {
+                    throw malformed("expected , or }");
+                }
+            }
+        }
+        if (peekToken() != -1) {
+            throw malformed("unexpected content after the object");
+        }
+        values.keySet().removeAll(errors.keySet());
+        return values;
+    }
+
+    private String readScalar() throws IOException {
+        int c = peekToken();
+        if (c == '"') {
+            return readString();
+        }
+        StringBuilder text = new StringBuilder();
+        while ((c = peek()) != -1 && (Character.isLetterOrDigit(c) || c == '-' || c == '+' || c == '.')) {
+            text.append((char) read());
+        }
+        String literal = text.toString();
+        switch (literal) {
+            case "null":
+                return null;
+            case "true":
+            case "false":
+                return literal;
+            default:
+                if (!literal.matches("-?(0|[1-9][0-9]*)(\\.[0-9]+)?([eE][-+]?[0-9]+)?")) {
+                    throw malformed("expected a value");
+                }
+                return literal;
+        }
+    }
+
+    private String readString() throws IOException {
+        expect('"');
+        StringBuilder text = new StringBuilder();
+        while (true) {
+            int c = read();
+            if (c == -1) {
+                throw malformed("unterminated string");
+            } else if (c == '"') {
+                return text.toString();
+            } else if (c == '\\') {
+                int e = read();
+                switch (e) {
+                    case '"': case '\\': case '/': text.append((char) e); break;
+                    case 'b': text.append('\b'); break;
+                    case 'f': text.append('\f'); break;
+                    case 'n': text.append('\n'); break;
+                    case 'r': text.append('\r'); break;
+                    case 't': text.append('\t'); break;
+                    case 'u':
+                        int code = 0;
+                        for (int i = 0; i < 4; i++) {
+                            int digit = Character.digit(read(), 16);
+                            if (digit < 0) {
+                                throw malformed("invalid escape");
+                            }
+                            code = code * 16 + digit;
+                        }
+                        text.append((char) code);
+                        break;
+                    default:
+                        throw malformed("invalid escape");
+                }
+            } else if (c < 0x20) {
+                throw malformed("control character in string");
+            } else {
+                text.append((char) c);
+            }
+        }
+    }
+
+    /**
+     * Skips an object or array, however deeply nested.
+     */
+    private void skipValue() throws IOException {
+        int depth = 0;
+        do {
+            int c = peekToken();
+            if (c == -1) {
+                throw malformed("unterminated value");
+            } else if (c == '"') {
+                readString();
+                continue;
+            }
+            read();
+            if (c == '{' || c == '[') {
+                depth++;
+            } else if (c == '}' || c == ']') {
+                depth--;
+            }
+        } while (depth > 0);
+    }
+
+    private void expect(char expected) throws IOException {
+        if (readToken() != expected) {
+            throw malformed("expected " + expected);
+        }
+    }
+
+    private int readToken() throws IOException {
+        peekToken();
+        return read();
+    }
+
+    /**
+     * Skips whitespace and returns the next character without consuming it.
+     */
+    private int peekToken() throws IOException {
+        int c;
+        while ((c = peek()) == ' ' || c == '\t' || c == '\n' || c == '\r') {
+            read();
+        }
+        return c;
+    }
+
+    private int peek() throws IOException {
+        if (next == -2) {
+            next = in.read();
+        }
+        return next;
+    }
+
+    private int read() throws IOException {
+        int c = peek();
+        next = -2;
+        if (c != -1) {
+            position++;
+        }
+        return c;
+    }
+
+    private IllegalArgumentException malformed(String problem) {
+        return new IllegalArgumentException("Malformed JSON at character " + position + ": " + problem);
+    }
+}
@@ -0,0 +1,155 @@
+package org.jenkinsci.plugins.workflow.support.steps.input;
+
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import hudson.Util;
+import hudson.model.Run;
+import java.util.Comparator;
+import java.util.List;
+import org.kohsuke.stapler.export.Exported;
+import org.kohsuke.stapler.export.ExportedBean;
+
+/**
+ * Summary of one pending input, as kept by {@link PendingInputRegistry}.
+ * Holds no reference to the build or the execution, so listing these never loads anything.
+ */
+@ExportedBean(defaultVisibility = 2)
+public final class PendingInput {
+
+    static final Comparator<PendingInput> ORDER = Comparator.comparingLong(PendingInput::getSince)
+            .thenComparing(PendingInput::getRunId)
+            .thenComparing(PendingInput::getId);
+
+    private final String job;
+    private final int build;
+    private final String runId;
+    private final String url;
+    private final String id;
+    private final String message;
+    private final String submitter;
+    private final long since;
+    private final long deadline;
+    private final List<Long> reminders;
+    private final boolean restored;
+
+    PendingInput(@NonNull Run<?, ?> run, @NonNull String id, @CheckForNull String message, @CheckForNull String submitter, long since, long deadline, @NonNull List<Long> reminders, boolean restored) {
+        this.job = run.getParent().getFullName();
+        this.build = run.getNumber();
+        this.runId = run.getExternalizableId();
+        this.url = run.getUrl() + "input/" + Util.rawEncode(id) + "/";
+        this.id = id;
+        this.message = message;
+        this.submitter = submitter;
+        this.since = since;
+        this.deadline = deadline;
+        this.reminders = reminders;
+        this.restored = restored;
+    }
+
+    static PendingInput of(@NonNull Run<?, ?> run, @NonNull InputStepExecution execution) {
+        InputStep input = execution.getInput();
+        return new PendingInput(run, execution.getId(), input.getMessage(), input.getSubmitter(), execution.getPauseStartTime(), deadline(input, execution.getPauseStartTime()), input.getReminderMillis(), true);
+    }
+
+    static PendingInput of(@NonNull Run<?, ?> run, @NonNull PendingInputSnapshot snapshot) {
+        InputStep input = snapshot.getInput();
+        return new PendingInput(run, snapshot.getId(), input.getMessage(), input.getSubmitter(), snapshot.getSince(), deadline(input, snapshot.getSince()), input.getReminderMillis(), false);
+    }
+
+    private static long deadline(InputStep input, long since) {
+        long timeout = input.getTimeoutMillis();
+        return timeout > 0 && since > 0 ? since + timeout : 0;
+    }
+
+    /**
+     * Full name of the job.
+     */
+    @Exported
+    public String getJob() {
+        return job;
+    }
+
+    @Exported
+    public int getBuild() {
+        return build;
+    }
+
+    /**
+     * @see Run#getExternalizableId
+     */
+    @Exported
+    public String getRunId() {
+        return runId;
+    }
+
+    /**
+     * URL of the input, relative to the root URL, to which {@code proceed} or {@code abort} may be appended.
+     */
+    @Exported
+    public String getUrl() {
+        return url;
+    }
+
+    @Exported
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * @return null if the input was started by an older version and has not been restored since the last restart
+     */
+    @Exported
+    @CheckForNull
+    public String getMessage() {
+        return message;
+    }
+
+    @Exported
+    @CheckForNull
+    public String getSubmitter() {
+        return submitter;
+    }
+
+    /**
+     * When the build paused for this input, in milliseconds since the epoch, or 0 if unknown.
+     */
+    @Exported
+    public long getSince() {
+        return since;
+    }
+
+    /**
+     * When this input times out, in milliseconds since the epoch, or 0 if never.
+     * @see InputStep#getTimeout
+     */
+    @Exported
+    public long getDeadline() {
+        return deadline;
+    }
+
+    /**
+     * @see InputStep#getReminders
+     */
+    List<Long> getReminders() {
+        return reminders;
+    }
+
+    /**
+     * Whether the details of this input are known, rather than just its ID.
+     */
+    boolean hasDetails() {
+        return message != null;
+    }
+
+    /**
+     * Whether this describes a live {@link InputStepExecution}, rather than what was persisted of it.
+     */
+    boolean isRestored() {
+        return restored;
+    }
+
+    @Override
+    public String toString() {
+        return runId + "/" + id;
+    }
+}
@@ -0,0 +1,153 @@
+package org.jenkinsci.plugins.workflow.support.steps.input;
+
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Pending {@link InputStepExecution}s of one build, keyed by {@link InputStepExecution#getId}.
+ * Lookups, additions and removals take constant time regardless of how many inputs are pending;
+ * iteration follows the order in which the inputs were requested.
+ * <p>
+ * Readers never lock: {@link #get} goes straight to a concurrent map,
+ * and {@link #list} and {@link #ids} return immutable snapshots which are only rebuilt after a change.
+ * Writers serialize on this object, and only for the in-memory update.
+ */
+final class PendingInputIndex {
+
+    /**
+     * IDs of all pending inputs, in the order they were requested.
+     * May include IDs persisted in {@code build.xml} for which no execution could be restored.
+     */
+    private final Set<String> ids = new LinkedHashSet<>();
+
+    /**
+     * Executions by ID. Normally each list holds a single element,
+     * unless parallel branches ask for inputs with the same ID.
+     * Lists are never modified once published, so {@link #get} needs no lock.
+     */
+    private final ConcurrentMap<String, List<InputStepExecution>> executions = new ConcurrentHashMap<>();
+
+    /** Snapshot of {@link #executions} in order, or null if it must be rebuilt. */
+    private volatile List<InputStepExecution> executionsSnapshot;
+
+    /** Snapshot of {@link #ids}, or null if it must be rebuilt. */
+    private volatile List<String> idsSnapshot;
+
+    PendingInputIndex() {}
+
+    PendingInputIndex(@NonNull Collection<String> ids) {
+        this.ids.addAll(ids);
+    }
+
+    synchronized void add(@NonNull InputStepExecution execution) {
+        String id = execution.getId();
+        ids.add(id);
+        List<InputStepExecution> list = executions.get(id);
+        List<InputStepExecution> copy = list == null ? new ArrayList<>(1) : new ArrayList<>(list);
+        copy.add(execution);
+        executions.put(id, copy);
+        invalidate();
+    }
+
+    /**
+     * @return true if the execution was pending
+     */
+    synchronized boolean remove(@NonNull InputStepExecution execution) {
+        String id = execution.getId();
+        List<InputStepExecution> list = executions.get(id);
+        if (list == null) {
+            // never restored, but the ID may still be persisted
+            if (ids.remove(id)) {
+                invalidate();
+            }
+            return false;
+        }
+        if (!list.contains(execution)) {
+            return false;
+        }
+        if (list.size() == 1) {
+            executions.remove(id);
+            ids.remove(id);
+        } else {
+            List<InputStepExecution> copy = new ArrayList<>(list);
+            copy.remove(execution);
+            executions.put(id, copy);
+        }
+        invalidate();
+        return true;
+    }
+
+    private void invalidate() {
+        executionsSnapshot = null;
+        idsSnapshot = null;
+    }
+
+    /**
+     * @return the earliest pending execution with this ID, if any
+     */
+    @CheckForNull
+    InputStepExecution get(@NonNull String id) {
+        List<InputStepExecution> list = executions.get(id);
+        return list == null ? null : list.get(0);
+    }
+
+    /**
+     * @return all pending executions, in the order they were requested; immutable
+     */
+    @NonNull
+    List<InputStepExecution> list() {
+        List<InputStepExecution> snapshot = executionsSnapshot;
+        if (snapshot != null) {
+            return snapshot;
+        }
+        synchronized (this) {
+            if (executionsSnapshot == null) {
+                List<InputStepExecution> result = new ArrayList<>(executions.size());
+                for (String id : ids) {
+                    List<InputStepExecution> list = executions.get(id);
+                    if (list != null) {
+                        result.addAll(list);
+                    }
+                }
+                executionsSnapshot = Collections.unmodifiableList(result);
+            }
+            return executionsSnapshot;
+        }
+    }
+
+    /**
+     * @return pending IDs, in the order they were requested, suitable for persisting; immutable
+     */
+    @NonNull
+    List<String> ids() {
+        List<String> snapshot = idsSnapshot;
+        if (snapshot != null) {
+            return snapshot;
+        }
+        synchronized (this) {
+            if (idsSnapshot == null) {
+                idsSnapshot = Collections.unmodifiableList(new ArrayList<>(ids));
+            }
+            return idsSnapshot;
+        }
+    }
+
+    boolean isEmpty() {
+        return ids().isEmpty();
+    }
+
+    /**
+     * @return the number of distinct IDs with a restored execution
+     */
+    int size() {
+        return executions.size();
+    }
+}
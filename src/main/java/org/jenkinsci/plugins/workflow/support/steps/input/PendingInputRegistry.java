@@ -0,0 +1,468 @@
+package org.jenkinsci.plugins.workflow.support.steps.input;
+
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import hudson.Extension;
+import hudson.ExtensionList;
+import hudson.model.Api;
+import hudson.model.Item;
+import hudson.model.Job;
+import hudson.model.RootAction;
+import hudson.model.Run;
+import hudson.model.listeners.RunListener;
+import hudson.security.ACL;
+import hudson.security.ACLContext;
+import hudson.security.SecurityRealm;
+import hudson.util.HttpResponses;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+import jenkins.model.IdStrategy;
+import jenkins.model.Jenkins;
+import net.sf.json.JSONArray;
+import net.sf.json.JSONException;
+import net.sf.json.JSONObject;
+import org.kohsuke.accmod.Restricted;
+import org.kohsuke.accmod.restrictions.NoExternalUse;
+import org.kohsuke.stapler.HttpResponse;
+import org.kohsuke.stapler.Stapler;
+import org.kohsuke.stapler.StaplerRequest2;
+import org.kohsuke.stapler.StaplerResponse2;
+import org.kohsuke.stapler.export.Exported;
+import org.kohsuke.stapler.export.ExportedBean;
+import org.kohsuke.stapler.interceptor.RequirePOST;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+
+/**
+ * Every input pending anywhere on the controller, kept up to date by {@link InputAction}.
+ * Served at {@code /pendingInputs/api/json?start=0&limit=100}, oldest first,
+ * showing only inputs of jobs the caller may read.
+ */
+@Extension
+@ExportedBean
+public class PendingInputRegistry implements RootAction {
+
+    private static final Logger LOGGER = Logger.getLogger(PendingInputRegistry.class.getName());
+
+    static final int DEFAULT_LIMIT = 100;
+    static final int MAX_LIMIT = 1000;
+
+    /** Inputs by {@link Run#getExternalizableId} and input ID. */
+    private final ConcurrentMap<String, ConcurrentMap<String, PendingInput>> byRun = new ConcurrentHashMap<>();
+    /** The same inputs, ordered by {@link PendingInput#ORDER}. */
+    private final ConcurrentSkipListSet<PendingInput> ordered = new ConcurrentSkipListSet<>(PendingInput.ORDER);
+    /**
+     * Inputs restricted by {@link InputStep#getSubmitter}, by each user and group named there.
+     * Keys are {@link IdStrategy#keyFor} of the name, prefixed by {@link #USER} or {@link #GROUP}.
+     */
+    private final ConcurrentMap<String, Set<PendingInput>> bySubmitter = new ConcurrentHashMap<>();
+    /** Inputs without {@link InputStep#getSubmitter}, which anyone with {@link Job#BUILD} may settle. */
+    private final ConcurrentSkipListSet<PendingInput> unrestricted = new ConcurrentSkipListSet<>(PendingInput.ORDER);
+    /** Strategies by which {@link #bySubmitter} was keyed, or null if it is empty. */
+    private volatile IdStrategy userIdStrategy, groupIdStrategy;
+
+    private static final String USER = "user:";
+    private static final String GROUP = "group:";
+
+    @NonNull
+    public static PendingInputRegistry get() {
+        return ExtensionList.lookupSingleton(PendingInputRegistry.class);
+    }
+
+    void register(@NonNull Run<?, ?> run, @NonNull InputStepExecution execution) {
+        if (execution.getPauseStartTime() == 0 && execution.getInput().getTimeoutMillis() > 0) {
+            LOGGER.warning(() -> "Input " + execution.getId() + " of " + run + " was paused by an older version, which did not record when; its timeout cannot be enforced");
+        }
+        put(PendingInput.of(run, execution));
+    }
+
+    /**
+     * Registers inputs as persisted in {@code build.xml}, unless their executions have already been restored.
+     * Inputs started by older versions may have no snapshot and are known only by ID.
+     */
+    synchronized void registerSnapshots(@NonNull Run<?, ?> run, @NonNull Collection<String> ids, @NonNull Collection<PendingInputSnapshot> snapshots) {
+        String runId = run.getExternalizableId();
+        Map<String, PendingInputSnapshot> byId = new HashMap<>();
+        for (PendingInputSnapshot snapshot : snapshots) {
+            byId.put(snapshot.getId(), snapshot);
+        }
+        for (String id : ids) {
+            PendingInput existing = get(runId, id);
+            if (existing == null || !existing.isRestored()) {
+                PendingInputSnapshot snapshot = byId.get(id);
+                put(snapshot != null ? PendingInput.of(run, snapshot) : new PendingInput(run, id, null, null, 0, 0, List.of(), false));
+            }
+        }
+    }
+
+    synchronized void unregister(@NonNull Run<?, ?> run, @NonNull String id) {
+        String runId = run.getExternalizableId();
+        ConcurrentMap<String, PendingInput> inputs = byRun.get(runId);
+        if (inputs != null) {
+            PendingInput old = inputs.remove(id);
+            if (old != null) {
+                ordered.remove(old);
+                unindex(old);
+                unschedule(old);
+            }
+            if (inputs.isEmpty()) {
+                byRun.remove(runId);
+            }
+        }
+    }
+
+    synchronized void unregisterAll(@NonNull Run<?, ?> run) {
+        ConcurrentMap<String, PendingInput> inputs = byRun.remove(run.getExternalizableId());
+        if (inputs != null) {
+            for (PendingInput old : inputs.values()) {
+                ordered.remove(old);
+                unindex(old);
+                unschedule(old);
+            }
+        }
+    }
+
+    private synchronized void put(PendingInput input) {
+        PendingInput old = byRun.computeIfAbsent(input.getRunId(), k -> new ConcurrentHashMap<>()).put(input.getId(), input);
+        if (old != null) {
+            ordered.remove(old);
+            unindex(old);
+        }
+        ordered.add(input);
+        index(input);
+        if (input.getDeadline() > 0) {
+            InputTimeouts.get().schedule(input.getRunId(), input.getId(), input.getDeadline());
+        } else if (old != null) {
+            unschedule(old);
+        }
+    }
+
+    private static void unschedule(PendingInput input) {
+        if (input.getDeadline() > 0) {
+            InputTimeouts.get().cancel(input.getRunId(), input.getId());
+        }
+    }
+
+    private void index(PendingInput input) {
+        assert Thread.holdsLock(this);
+        if (!input.hasDetails()) {
+            return; // submitter not yet known
+        }
+        Set<String> submitters = submitters(input);
+        if (submitters.isEmpty()) {
+            unrestricted.add(input);
+            return;
+        }
+        if (userIdStrategy == null) {
+            SecurityRealm realm = Jenkins.get().getSecurityRealm();
+            userIdStrategy = realm.getUserIdStrategy();
+            groupIdStrategy = realm.getGroupIdStrategy();
+        }
+        for (String submitter : submitters) {
+            bySubmitter.computeIfAbsent(USER + userIdStrategy.keyFor(submitter), k -> ConcurrentHashMap.newKeySet()).add(input);
+            bySubmitter.computeIfAbsent(GROUP + groupIdStrategy.keyFor(submitter), k -> ConcurrentHashMap.newKeySet()).add(input);
+        }
+    }
+
+    private void unindex(PendingInput input) {
+        assert Thread.holdsLock(this);
+        if (!input.hasDetails()) {
+            return;
+        }
+        Set<String> submitters = submitters(input);
+        if (submitters.isEmpty()) {
+            unrestricted.remove(input);
+            return;
+        }
+        for (String submitter : submitters) {
+            unindex(USER + userIdStrategy.keyFor(submitter), input);
+            unindex(GROUP + groupIdStrategy.keyFor(submitter), input);
+        }
+        if (bySubmitter.isEmpty()) {
+            userIdStrategy = groupIdStrategy = null;
+        }
+    }
+
+    private void unindex(String key, PendingInput input) {
+        Set<PendingInput> inputs = bySubmitter.get(key);
+        if (inputs != null && inputs.remove(input) && inputs.isEmpty()) {
+            bySubmitter.remove(key);
+        }
+    }
+
+    private static Set<String> submitters(PendingInput input) {
+        return SubmitterMatcher.names(input.getSubmitter());
+    }
+
+    /**
+     * Rekeys {@link #bySubmitter} if the security realm has been replaced by one comparing names differently.
+     */
+    private void checkIdStrategies(SecurityRealm realm) {
+        if (userIdStrategy == null || userIdStrategy.equals(realm.getUserIdStrategy()) && groupIdStrategy.equals(realm.getGroupIdStrategy())) {
+            return;
+        }
+        synchronized (this) {
+            if (userIdStrategy == null || userIdStrategy.equals(realm.getUserIdStrategy()) && groupIdStrategy.equals(realm.getGroupIdStrategy())) {
+                return;
+            }
+            LOGGER.fine("security realm changed, rebuilding index of submitters");
+            bySubmitter.clear();
+            unrestricted.clear();
+            userIdStrategy = groupIdStrategy = null;
+            for (PendingInput input : ordered) {
+                index(input);
+            }
+        }
+    }
+
+    /**
+     * Finds builds with inputs not yet restored since the last restart.
+     * @return the latest {@link PendingInput#getSince} of each such build, by {@link Run#getExternalizableId}
+     */
+    @NonNull
+    Map<String, Long> unrestoredRuns() {
+        Map<String, Long> runs = new HashMap<>();
+        for (PendingInput input : ordered) {
+            if (!input.isRestored()) {
+                runs.merge(input.getRunId(), input.getSince(), Math::max);
+            }
+        }
+        return runs;
+    }
+
+    @CheckForNull
+    PendingInput get(@NonNull String runId, @NonNull String id) {
+        ConcurrentMap<String, PendingInput> inputs = byRun.get(runId);
+        return inputs == null ? null : inputs.get(id);
+    }
+
+    /**
+     * All pending inputs, oldest first, regardless of permissions.
+     */
+    @NonNull
+    Collection<PendingInput> all() {
+        return Collections.unmodifiableCollection(ordered);
+    }
+
+    /**
+     * Lists pending inputs of jobs readable by the current user, oldest first.
+     * @param start number of readable inputs to skip
+     * @param limit maximum number of inputs to return
+     */
+    @NonNull
+    public List<PendingInput> list(int start, int limit) {
+        List<PendingInput> result = new ArrayList<>(Math.min(limit, DEFAULT_LIMIT));
+        Map<String, Boolean> readable = new HashMap<>();
+        int skipped = 0;
+        for (PendingInput input : ordered) {
+            if (result.size() >= limit) {
+                break;
+            }
+            if (!readable.computeIfAbsent(input.getJob(), job -> Jenkins.get().getItemByFullName(job, Job.class) != null)) {
+                continue;
+            }
+            if (skipped < start) {
+                skipped++;
+                continue;
+            }
+            result.add(input);
+        }
+        return result;
+    }
+
+    /**
+     * Lists pending inputs which the given user may approve or reject, oldest first.
+     * Inputs naming a submitter are found by looking up the user and their groups;
+     * only inputs without one are checked individually, for {@link Job#BUILD}.
+     * Inputs started by older versions and not yet restored after a restart are omitted, as their submitters are unknown.
+     * @param start number of approvable inputs to skip
+     * @param limit maximum number of inputs to return
+     * @see InputStepExecution#preSubmissionCheck
+     */
+    @NonNull
+    public List<PendingInput> listApprovable(@NonNull Authentication a, int start, int limit) {
+        Jenkins jenkins = Jenkins.get();
+        if (!jenkins.isUseSecurity() || jenkins.getACL().hasPermission2(a, Jenkins.ADMINISTER)) {
+            return list(start, limit);
+        }
+        SecurityRealm realm = jenkins.getSecurityRealm();
+        checkIdStrategies(realm);
+        SortedSet<PendingInput> candidates = new TreeSet<>(PendingInput.ORDER);
+        candidates.addAll(bySubmitter.getOrDefault(USER + realm.getUserIdStrategy().keyFor(a.getName()), Set.of()));
+        for (GrantedAuthority ga : a.getAuthorities()) {
+            candidates.addAll(bySubmitter.getOrDefault(GROUP + realm.getGroupIdStrategy().keyFor(ga.getAuthority()), Set.of()));
+        }
+        candidates.addAll(unrestricted);
+        List<PendingInput> result = new ArrayList<>(Math.min(limit, DEFAULT_LIMIT));
+        Map<String, Job<?, ?>> jobs = new HashMap<>();
+        int skipped = 0;
+        try (ACLContext context = ACL.as2(ACL.SYSTEM2)) { // permissions are checked for a below
+            for (PendingInput input : candidates) {
+                if (result.size() >= limit) {
+                    break;
+                }
+                Job<?, ?> job = jobs.computeIfAbsent(input.getJob(), name -> jenkins.getItemByFullName(name, Job.class));
+                if (job == null || !job.hasPermission2(a, Item.READ)) {
+                    continue;
+                }
+                if (input.getSubmitter() == null && !job.hasPermission2(a, Job.BUILD)) {
+                    continue;
+                }
+                if (skipped < start) {
+                    skipped++;
+                    continue;
+                }
+                result.add(input);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Pending inputs the current user may approve, at {@code /pendingInputs/approvable/api/json}.
+     */
+    public Approvable getApprovable() {
+        return new Approvable();
+    }
+
+    @ExportedBean
+    @Restricted(NoExternalUse.class)
+    public final class Approvable {
+
+        /**
+         * Pending inputs the current user may approve, paginated like {@link PendingInputRegistry#getInputs}.
+         */
+        @Exported(inline = true)
+        public List<PendingInput> getInputs() {
+            StaplerRequest2 req = Stapler.getCurrentRequest2();
+            int start = Math.max(0, intParameter(req, "start", 0));
+            int limit = Math.max(0, Math.min(MAX_LIMIT, intParameter(req, "limit", DEFAULT_LIMIT)));
+            return listApprovable(Jenkins.getAuthentication2(), start, limit);
+        }
+
+        public Api getApi() {
+            return new Api(this);
+        }
+    }
+
+    /**
+     * Approvals given in advance, at {@code /pendingInputs/preApprovals/}.
+     */
+    public PreApprovals getPreApprovals() {
+        return PreApprovals.get();
+    }
+
+    /**
+     * Rules approving inputs automatically, at {@code /pendingInputs/autoApprovalRules/}.
+     */
+    public AutoApprovalRules getAutoApprovalRules() {
+        return AutoApprovalRules.get();
+    }
+
+    /**
+     * Progress of restoring pending inputs after a restart, if enabled.
+     */
+    @Exported
+    @CheckForNull
+    public InputWarmup getWarmUp() {
+        InputWarmup warmUp = InputWarmup.get();
+        return warmUp.isEnabled() ? warmUp : null;
+    }
+
+    /**
+     * Pending inputs, paginated by the {@code start} and {@code limit} query parameters.
+     */
+    @Exported(inline = true)
+    public List<PendingInput> getInputs() {
+        StaplerRequest2 req = Stapler.getCurrentRequest2();
+        int start = Math.max(0, intParameter(req, "start", 0));
+        int limit = Math.max(0, Math.min(MAX_LIMIT, intParameter(req, "limit", DEFAULT_LIMIT)));
+        return list(start, limit);
+    }
+
+    private static int intParameter(@CheckForNull StaplerRequest2 req, String name, int defaultValue) {
+        String value = req == null ? null : req.getParameter(name);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException x) {
+            return defaultValue;
+        }
+    }
+
+    public Api getApi() {
+        return new Api(this);
+    }
+
+    /**
+     * Approves or rejects many inputs at once, as described in {@link BulkSettlement}.
+     * Takes a JSON body like {@code {"inputs": [...]}}.
+     */
+    @RequirePOST
+    public HttpResponse doSettle(StaplerRequest2 req) throws IOException, InterruptedException {
+        JSONObject body;
+        try {
+            body = JSONObject.fromObject(req.getReader().lines().collect(Collectors.joining("\n")));
+        } catch (JSONException x) {
+            return HttpResponses.errorJSON("malformed request: " + x.getMessage());
+        }
+        JSONArray inputs = body.optJSONArray("inputs");
+        if (inputs == null) {
+            return HttpResponses.errorJSON("expected a list of inputs");
+        }
+        return HttpResponses.okJSON(new BulkSettlement(req).settle(inputs));
+    }
+
+    /**
+     * Streams {@link InputEvent}s about inputs of jobs the caller may read, as Server-Sent Events.
+     * @see InputEventStream
+     */
+    public void doEvents(StaplerRequest2 req, StaplerResponse2 rsp) throws IOException, InterruptedException {
+        InputEventStream.get().serve(req, rsp);
+    }
+
+    @Override
+    public String getIconFileName() {
+        return null;
+    }
+
+    @Override
+    public String getDisplayName() {
+        return Messages.pending_inputs();
+    }
+
+    @Override
+    public String getUrlName() {
+        return "pendingInputs";
+    }
+
+    @Extension
+    @Restricted(NoExternalUse.class)
+    public static final class RunCleanup extends RunListener<Run<?, ?>> {
+
+        @Override
+        public void onFinalized(Run<?, ?> run) {
+            get().unregisterAll(run);
+        }
+
+        @Override
+        public void onDeleted(Run<?, ?> run) {
+            get().unregisterAll(run);
+        }
+    }
+}
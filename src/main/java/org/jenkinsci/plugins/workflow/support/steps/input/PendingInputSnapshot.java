@@ -0,0 +1,134 @@
+package org.jenkinsci.plugins.workflow.support.steps.input;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import hudson.model.ModelObject;
+import hudson.model.ParameterDefinition;
+import hudson.util.HttpResponses;
+import jakarta.servlet.ServletException;
+import java.io.IOException;
+import java.util.concurrent.TimeoutException;
+import org.kohsuke.accmod.Restricted;
+import org.kohsuke.accmod.restrictions.NoExternalUse;
+import org.kohsuke.stapler.HttpResponse;
+import org.kohsuke.stapler.QueryParameter;
+import org.kohsuke.stapler.Stapler;
+import org.kohsuke.stapler.StaplerRequest2;
+import org.kohsuke.stapler.export.Exported;
+import org.kohsuke.stapler.export.ExportedBean;
+import org.kohsuke.stapler.interceptor.RequirePOST;
+
+/**
+ * What {@link InputAction} persists of a pending input, so that it can be listed and its form rendered
+ * after a restart without loading the program of the build.
+ * Submitting the form restores the {@link InputStepExecution} and hands the request over to it.
+ */
+@ExportedBean(defaultVisibility = 2)
+@Restricted(NoExternalUse.class)
+public final class PendingInputSnapshot implements ModelObject {
+
+    private final InputStep input;
+    private final long since;
+
+    PendingInputSnapshot(@NonNull InputStepExecution execution) {
+        this.input = execution.getInput();
+        this.since = execution.getPauseStartTime();
+    }
+
+    @Exported
+    public String getId() {
+        return input.getId();
+    }
+
+    @Exported
+    public InputStep getInput() {
+        return input;
+    }
+
+    /**
+     * @see InputStepExecution#getPauseStartTime
+     */
+    @Exported
+    public long getSince() {
+        return since;
+    }
+
+    @Override
+    public String getDisplayName() {
+        String message = input.getMessage();
+        if (message.length()<32)    return message;
+        return message.substring(0,32)+"...";
+    }
+
+    public boolean getHasUnsafeParameters() {
+        return input.hasUnsafeParameters();
+    }
+
+    public boolean getHasUnsafeId() {
+        return input.hasUnsafeId();
+    }
+
+    public boolean isLazyChoices(ParameterDefinition definition) {
+        return LazyChoices.isLazy(definition);
+    }
+
+    public String getChoicesUrl() {
+        return LazyChoices.url(getId());
+    }
+
+    /**
+     * Served from the snapshot itself, as the choices do not depend on the program of the build.
+     * @see InputStepExecution#doChoices
+     */
+    public HttpResponse doChoices(@QueryParameter String name, @QueryParameter String q, @QueryParameter int start, @QueryParameter int limit) {
+        return LazyChoices.page(input, name, q, start, limit);
+    }
+
+    /**
+     * @see InputStepExecution#doSubmit
+     */
+    @RequirePOST
+    public HttpResponse doSubmit(StaplerRequest2 request) throws IOException, ServletException, InterruptedException, TimeoutException {
+        return execution(request).doSubmit(request);
+    }
+
+    /**
+     * @see InputStepExecution#doProceed(StaplerRequest2)
+     */
+    @RequirePOST
+    public HttpResponse doProceed(StaplerRequest2 request) throws IOException, ServletException, InterruptedException, TimeoutException {
+        return execution(request).doProceed(request);
+    }
+
+    /**
+     * @see InputStepExecution#doProceedJson
+     */
+    @RequirePOST
+    public HttpResponse doProceedJson(StaplerRequest2 request) throws IOException, ServletException, InterruptedException, TimeoutException {
+        return execution(request).doProceedJson(request);
+    }
+
+    /**
+     * @see InputStepExecution#doProceedEmpty
+     */
+    @RequirePOST
+    public HttpResponse doProceedEmpty() throws IOException, InterruptedException, TimeoutException {
+        return execution(Stapler.getCurrentRequest2()).doProceedEmpty();
+    }
+
+    /**
+     * @see InputStepExecution#doAbort
+     */
+    @RequirePOST
+    public HttpResponse doAbort() throws IOException, InterruptedException, TimeoutException {
+        return execution(Stapler.getCurrentRequest2()).doAbort();
+    }
+
+    private InputStepExecution execution(StaplerRequest2 request) throws InterruptedException, TimeoutException {
+        InputAction action = request.findAncestorObject(InputAction.class);
+        InputStepExecution execution = action == null ? null : action.getExecution(getId());
+        if (execution == null) {
+            throw HttpResponses.notFound();
+        }
+        return execution;
+    }
+}
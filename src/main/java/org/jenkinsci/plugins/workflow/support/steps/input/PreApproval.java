@@ -0,0 +1,123 @@
+package org.jenkinsci.plugins.workflow.support.steps.input;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import hudson.model.Run;
+import hudson.util.Secret;
+import java.util.Map;
+import java.util.TreeMap;
+import org.kohsuke.stapler.export.Exported;
+import org.kohsuke.stapler.export.ExportedBean;
+
+/**
+ * An approval given in advance for an input of a job, optionally limited to a range of builds.
+ * Used by the first build reaching the input, which then does not pause at all.
+ * @see PreApprovals
+ */
+@ExportedBean(defaultVisibility = 2)
+public final class PreApproval {
+
+    private final String token;
+    private final String job;
+    private final String id;
+    private final int from;
+    private final int to;
+    /** Encrypted, as values may be passwords. */
+    private final Map<String, Secret> parameters;
+    private final String approver;
+    private final long created;
+
+    PreApproval(@NonNull String token, @NonNull String job, @NonNull String id, int from, int to,
+                @NonNull Map<String, String> parameters, @NonNull String approver) {
+        this(token, job, id, from, to, new TreeMap<>(), approver, System.currentTimeMillis());
+        parameters.forEach((name, value) -> this.parameters.put(name, Secret.fromString(value)));
+    }
+
+    private PreApproval(String token, String job, String id, int from, int to, Map<String, Secret> parameters, String approver, long created) {
+        this.token = token;
+        this.job = job;
+        this.id = id;
+        this.from = from;
+        this.to = to;
+        this.parameters = parameters;
+        this.approver = approver;
+        this.created = created;
+    }
+
+    /**
+     * Identifies this pre-approval, for example to revoke it.
+     */
+    @Exported
+    public String getToken() {
+        return token;
+    }
+
+    /**
+     * Full name of the job.
+     */
+    @Exported
+    public String getJob() {
+        return job;
+    }
+
+    /**
+     * @see InputStep#getId
+     */
+    @Exported
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * Lowest build number this applies to, or 0 for no limit.
+     */
+    @Exported
+    public int getFrom() {
+        return from;
+    }
+
+    /**
+     * Highest build number this applies to, or 0 for no limit.
+     */
+    @Exported
+    public int getTo() {
+        return to;
+    }
+
+    /**
+     * Values of parameters by name; parameters not listed take their default value.
+     * Not exported, like the values of submitted parameters.
+     */
+    @NonNull
+    Map<String, String> getParameters() {
+        Map<String, String> values = new TreeMap<>();
+        parameters.forEach((name, value) -> values.put(name, value.getPlainText()));
+        return values;
+    }
+
+    /**
+     * ID of the user who gave this approval, and who must be allowed to settle the input when it is reached.
+     */
+    @Exported
+    public String getApprover() {
+        return approver;
+    }
+
+    @Exported
+    public long getCreated() {
+        return created;
+    }
+
+    boolean appliesTo(@NonNull Run<?, ?> run) {
+        int number = run.getNumber();
+        return (from == 0 || number >= from) && (to == 0 || number <= to);
+    }
+
+    PreApproval moveTo(@NonNull String newJob) {
+        return new PreApproval(token, newJob, id, from, to, parameters, approver, created);
+    }
+
+    @Override
+    public String toString() {
+        return token + " for " + job + " " + id;
+    }
+}
@@ -0,0 +1,268 @@
+package org.jenkinsci.plugins.workflow.support.steps.input;
+
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import hudson.BulkChange;
+import hudson.Extension;
+import hudson.ExtensionList;
+import hudson.XmlFile;
+import hudson.model.Api;
+import hudson.model.Item;
+import hudson.model.Job;
+import hudson.model.Run;
+import hudson.model.Saveable;
+import hudson.model.User;
+import hudson.model.listeners.ItemListener;
+import hudson.model.listeners.SaveableListener;
+import hudson.util.HttpResponses;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.Map;
+import java.util.UUID;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+import jenkins.model.Jenkins;
+import net.sf.json.JSONException;
+import net.sf.json.JSONObject;
+import org.kohsuke.accmod.Restricted;
+import org.kohsuke.accmod.restrictions.NoExternalUse;
+import org.kohsuke.stapler.HttpResponse;
+import org.kohsuke.stapler.QueryParameter;
+import org.kohsuke.stapler.StaplerRequest2;
+import org.kohsuke.stapler.export.Exported;
+import org.kohsuke.stapler.export.ExportedBean;
+import org.kohsuke.stapler.interceptor.RequirePOST;
+
+/**
+ * {@link PreApproval}s not yet used, persisted in {@code JENKINS_HOME}.
+ * Served at {@code /pendingInputs/preApprovals/}: {@code api/json} lists those for jobs the caller may read,
+ * {@code create} takes a JSON body like {@code {"job": "folder/job", "id": "Deploy", "from": 12, "to": 0, "parameters": {"x": "y"}}}
+ * and records a pre-approval by the caller, who needs {@link Job#BUILD} on the job,
+ * and {@code revoke?token=...} deletes one.
+ * Each pre-approval is used at most once, by the first build of the job within its range to reach an input with its ID,
+ * provided its approver may then settle that input.
+ */
+@Extension
+@ExportedBean
+@Restricted(NoExternalUse.class)
+public final class PreApprovals implements Saveable {
+
+    private static final Logger LOGGER = Logger.getLogger(PreApprovals.class.getName());
+
+    private final List<PreApproval> approvals = new ArrayList<>();
+    /** {@link #approvals} by job and input ID, oldest first. */
+    private final transient Map<String, Map<String, List<PreApproval>>> index = new HashMap<>();
+
+    public PreApprovals() {
+        load();
+    }
+
+    @NonNull
+    static PreApprovals get() {
+        return ExtensionList.lookupSingleton(PreApprovals.class);
+    }
+
+    private static XmlFile getConfigFile() {
+        return new XmlFile(Jenkins.XSTREAM2, new File(Jenkins.get().getRootDir(), PreApprovals.class.getName() + ".xml"));
+    }
+
+    private synchronized void load() {
+        XmlFile file = getConfigFile();
+        if (file.exists()) {
+            try {
+                file.unmarshal(this);
+            } catch (IOException x) {
+                LOGGER.log(Level.WARNING, "failed to load " + file, x);
+            }
+        }
+        reindex();
+    }
+
+    @Override
+    public synchronized void save() throws IOException {
+        if (BulkChange.contains(this)) {
+            return;
+        }
+        XmlFile file = getConfigFile();
+        file.write(this);
+        SaveableListener.fireOnChange(this, file);
+    }
+
+    private void reindex() {
+        assert Thread.holdsLock(this);
+        index.clear();
+        for (PreApproval approval : approvals) {
+            index.computeIfAbsent(approval.getJob(), k -> new HashMap<>()).computeIfAbsent(approval.getId(), k -> new ArrayList<>()).add(approval);
+        }
+    }
+
+    synchronized void add(@NonNull PreApproval approval) throws IOException {
+        approvals.add(approval);
+        index.computeIfAbsent(approval.getJob(), k -> new HashMap<>()).computeIfAbsent(approval.getId(), k -> new ArrayList<>()).add(approval);
+        save();
+    }
+
+    /**
+     * Pre-approvals which could apply to an input of a build, oldest first.
+     */
+    @NonNull
+    synchronized List<PreApproval> candidates(@NonNull Run<?, ?> run, @NonNull String id) {
+        List<PreApproval> candidates = index.getOrDefault(run.getParent().getFullName(), Map.of()).getOrDefault(id, List.of());
+        return candidates.stream().filter(approval -> approval.appliesTo(run)).toList();
+    }
+
+    /**
+     * Removes a pre-approval, so that it cannot be used again.
+     * @return false if it had already been used or revoked
+     */
+    synchronized boolean remove(@NonNull PreApproval approval) throws IOException {
+        if (!approvals.remove(approval)) {
+            return false;
+        }
+        Map<String, List<PreApproval>> byId = index.get(approval.getJob());
+        List<PreApproval> forId = byId.get(approval.getId());
+        forId.remove(approval);
+        if (forId.isEmpty()) {
+            byId.remove(approval.getId());
+            if (byId.isEmpty()) {
+                index.remove(approval.getJob());
+            }
+        }
+        save();
+        return true;
+    }
+
+    @CheckForNull
+    synchronized PreApproval get(@NonNull String token) {
+        for (PreApproval approval : approvals) {
+            if (approval.getToken().equals(token)) {
+                return approval;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Pre-approvals for jobs the current user may read, oldest first.
+     */
+    @Exported(inline = true)
+    public List<PreApproval> getPreApprovals() {
+        List<PreApproval> all;
+        synchronized (this) {
+            all = new ArrayList<>(approvals);
+        }
+        Map<String, Boolean> readable = new HashMap<>();
+        return all.stream()
+                .filter(approval -> readable.computeIfAbsent(approval.getJob(), job -> Jenkins.get().getItemByFullName(job, Job.class) != null))
+                .toList();
+    }
+
+    public Api getApi() {
+        return new Api(this);
+    }
+
+    @RequirePOST
+    public HttpResponse doCreate(StaplerRequest2 req) throws IOException {
+        JSONObject body;
+        try {
+            body = JSONObject.fromObject(req.getReader().lines().collect(Collectors.joining("\n")));
+        } catch (JSONException x) {
+            return HttpResponses.errorJSON("malformed request: " + x.getMessage());
+        }
+        String jobName = body.optString("job", null);
+        String id = body.optString("id", null);
+        if (jobName == null || id == null) {
+            return HttpResponses.errorJSON("Both job and id are required");
+        }
+        int from = body.optInt("from", 0);
+        int to = body.optInt("to", 0);
+        if (from < 0 || to < 0 || from > 0 && to > 0 && from > to) {
+            return HttpResponses.errorJSON("Invalid range of builds: " + from + " to " + to);
+        }
+        Job<?, ?> job = Jenkins.get().getItemByFullName(jobName, Job.class);
+        if (job == null) {
+            return HttpResponses.errorJSON("No such job: " + jobName);
+        }
+        job.checkPermission(Job.BUILD);
+        User user = User.current();
+        if (user == null) {
+            return HttpResponses.errorJSON("Pre-approvals must be given by a logged-in user");
+        }
+        Map<String, String> parameters = new HashMap<>();
+        JSONObject values = body.optJSONObject("parameters");
+        if (values != null) {
+            for (Object key : values.keySet()) {
+                parameters.put((String) key, values.getString((String) key));
+            }
+        }
+        PreApproval approval = new PreApproval(UUID.randomUUID().toString(), job.getFullName(), id, from, to, parameters, user.getId());
+        add(approval);
+        LOGGER.fine(() -> user.getId() + " created pre-approval " + approval);
+        return HttpResponses.okJSON(new JSONObject().element("token", approval.getToken()));
+    }
+
+    /**
+     * Deletes a pre-approval. Anyone who could have created it may revoke it.
+     */
+    @RequirePOST
+    public HttpResponse doRevoke(@QueryParameter String token) throws IOException {
+        PreApproval approval = token == null ? null : get(token);
+        Job<?, ?> job = approval == null ? null : Jenkins.get().getItemByFullName(approval.getJob(), Job.class);
+        if (job == null) {
+            return HttpResponses.errorJSON("No such pre-approval");
+        }
+        job.checkPermission(Job.BUILD);
+        if (!remove(approval)) {
+            return HttpResponses.errorJSON("No such pre-approval");
+        }
+        return HttpResponses.okJSON();
+    }
+
+    /**
+     * Follows jobs when they or their folders are renamed or moved, and forgets them when they are deleted.
+     */
+    @Extension
+    @Restricted(NoExternalUse.class)
+    public static final class ItemTracker extends ItemListener {
+
+        @Override
+        public void onLocationChanged(Item item, String oldFullName, String newFullName) {
+            get().update(oldFullName, newFullName);
+        }
+
+        @Override
+        public void onDeleted(Item item) {
+            get().update(item.getFullName(), null);
+        }
+    }
+
+    private synchronized void update(@NonNull String oldFullName, @CheckForNull String newFullName) {
+        boolean changed = false;
+        for (ListIterator<PreApproval> it = approvals.listIterator(); it.hasNext(); ) {
+            PreApproval approval = it.next();
+            String job = approval.getJob();
+            if (!job.equals(oldFullName) && !job.startsWith(oldFullName + '/')) {
+                continue;
+            }
+            changed = true;
+            if (newFullName == null) {
+                it.remove();
+            } else {
+                it.set(approval.moveTo(newFullName + job.substring(oldFullName.length())));
+            }
+        }
+        if (changed) {
+            reindex();
+            try {
+                save();
+            } catch (IOException x) {
+                LOGGER.log(Level.WARNING, "failed to save pre-approvals", x);
+            }
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package org.jenkinsci.plugins.workflow.support.steps.input;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import hudson.model.Saveable;
+import java.io.IOException;
+
+/**
+ * Merges concurrent requests to save the same object into as few writes as possible.
+ * <p>
+ * The first caller to arrive becomes the leader and saves once on behalf of everyone who asked so far.
+ * Callers arriving while that save is in progress wait for it and then elect the next leader among themselves;
+ * as others are then already waiting, a burst is under way, so that leader first waits for a short window
+ * so that more changes can join. A lone caller saves at once.
+ * {@link #save} only returns once a save which started after the call has completed,
+ * so a change made before calling it is durable when it returns.
+ */
+final class SaveCoalescer {
+
+    private final Saveable target;
+    private final long windowMillis;
+
+    /** Number of the latest request. */
+    private long requested;
+    /** All requests up to this number have been saved. */
+    private long completed;
+    /** All requests up to this number have failed with {@link #failure}, unless {@link #completed} since. */
+    private long failed;
+    private IOException failure;
+    private boolean saving;
+
+    SaveCoalescer(@NonNull Saveable target, long windowMillis) {
+        this.target = target;
+        this.windowMillis = windowMillis;
+    }
+
+    void save() throws IOException, InterruptedException {
+        long ticket;
+        synchronized (this) {
+            ticket = ++requested;
+            while (true) {
+                if (completed >= ticket) {
+                    return;
+                }
+                if (failed >= ticket) {
+                    throw new IOException(failure);
+                }
+                if (!saving) {
+                    break;
+                }
+                wait();
+            }
+            saving = true;
+        }
+        long covered = ticket;
+        boolean saved = false;
+        boolean interrupted = false;
+        IOException x = null;
+        try {
+            if (windowMillis > 0 && isContended(ticket)) {
+                try {
+                    Thread.sleep(windowMillis);
+                } catch (InterruptedException e) {
+                    // still save what was asked for, then let the caller see the interruption;
+                    // not before, as an interrupted thread cannot write through a FileChannel
+                    interrupted = true;
+                }
+            }
+            synchronized (this) {
+                covered = requested;
+            }
+            target.save();
+            saved = true;
+        } catch (IOException e) {
+            x = e;
+        } finally {
+            synchronized (this) {
+                saving = false;
+                if (saved) {
+                    completed = Math.max(completed, covered);
+                } else if (x != null) {
+                    failed = Math.max(failed, covered);
+                    failure = x;
+                }
+                notifyAll();
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (x != null) {
+            throw x;
+        }
+    }
+
+    /**
+     * Whether others have asked to save since the given request, and so are waiting for the leader.
+     */
+    private synchronized boolean isContended(long ticket) {
+        return requested > ticket;
+    }
+}
@@ -0,0 +1,79 @@
+package org.jenkinsci.plugins.workflow.support.steps.input;
+
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import hudson.security.SecurityRealm;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import jenkins.model.IdStrategy;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+
+/**
+ * {@link InputStep#getSubmitter} parsed once, to check quickly whether someone may settle an input.
+ * Names are held as {@link IdStrategy#keyFor} of the realm's strategies, so that a check costs one lookup
+ * for the user and one for each of their groups, however many submitters are named.
+ */
+final class SubmitterMatcher {
+
+    private final IdStrategy userIdStrategy;
+    private final IdStrategy groupIdStrategy;
+    private final Set<String> userKeys;
+    private final Set<String> groupKeys;
+
+    SubmitterMatcher(@NonNull String submitter, @NonNull IdStrategy userIdStrategy, @NonNull IdStrategy groupIdStrategy) {
+        this.userIdStrategy = userIdStrategy;
+        this.groupIdStrategy = groupIdStrategy;
+        Set<String> names = names(submitter);
+        Set<String> userKeys = new HashSet<>(names.size() * 2);
+        Set<String> groupKeys = new HashSet<>(names.size() * 2);
+        for (String name : names) {
+            userKeys.add(userIdStrategy.keyFor(name));
+            groupKeys.add(groupIdStrategy.keyFor(name));
+        }
+        this.userKeys = Collections.unmodifiableSet(userKeys);
+        this.groupKeys = Collections.unmodifiableSet(groupKeys);
+    }
+
+    /**
+     * Splits a comma-separated list of users and groups, dropping blanks.
+     */
+    @NonNull
+    static Set<String> names(@CheckForNull String submitter) {
+        Set<String> names = new LinkedHashSet<>();
+        if (submitter != null) {
+            for (String name : submitter.split(",")) {
+                name = name.trim();
+                if (!name.isEmpty()) {
+                    names.add(name);
+                }
+            }
+        }
+        return names;
+    }
+
+    /**
+     * Whether this was compiled for the strategies of the given realm, or must be compiled again.
+     */
+    boolean isFor(@NonNull SecurityRealm realm) {
+        return userIdStrategy.equals(realm.getUserIdStrategy()) && groupIdStrategy.equals(realm.getGroupIdStrategy());
+    }
+
+    /**
+     * Whether the user, or any of their groups, is among the submitters.
+     */
+    boolean matches(@NonNull Authentication a) {
+        if (userKeys.contains(userIdStrategy.keyFor(a.getName()))) {
+            return true;
+        }
+        for (GrantedAuthority ga : a.getAuthorities()) {
+            String authority = ga.getAuthority();
+            if (authority != null && groupKeys.contains(groupIdStrategy.keyFor(authority))) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,16 @@
+package org.jenkinsci.plugins.workflow.support.steps.input;
+
+import jenkins.model.CauseOfInterruption;
+
+/**
+ * Indicates that the input step was aborted because its {@link InputStep#getTimeout} elapsed.
+ */
+public final class TimedOut extends CauseOfInterruption {
+
+    private static final long serialVersionUID = 1;
+
+    @Override public String getShortDescription() {
+        return Messages.timed_out();
+    }
+
+}
@@ -0,0 +1,123 @@
+package org.jenkinsci.plugins.workflow.support.steps.input;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Hierarchical timing wheel: schedules and cancels deadlines in constant time, however many are pending,
+ * at the cost of a resolution of one tick.
+ * Each of {@link #LEVELS} wheels has {@link #SLOTS} slots, each slot of a level spanning a full turn of the level below;
+ * entries move down a level as their deadline draws near, and expire from the lowest one.
+ * Deadlines beyond the highest level wait in an overflow list.
+ * Not thread-safe.
+ * @param <T> type of the scheduled items
+ */
+final class TimerWheel<T> {
+
+    private static final int BITS = 6;
+    static final int SLOTS = 1 << BITS;
+    private static final int MASK = SLOTS - 1;
+    static final int LEVELS = 4;
+
+    static final class Entry<T> {
+        final T item;
+        final long deadlineTick;
+        boolean cancelled;
+
+        Entry(T item, long deadlineTick) {
+            this.item = item;
+            this.deadlineTick = deadlineTick;
+        }
+
+        /**
+         * Stops this entry from expiring; it is discarded when its slot is next visited.
+         */
+        void cancel() {
+            cancelled = true;
+        }
+    }
+
+    private final long tickMillis;
+    private final List<ArrayDeque<Entry<T>>> slots = new ArrayList<>(LEVELS * SLOTS);
+    private final ArrayDeque<Entry<T>> overflow = new ArrayDeque<>();
+    /** Last tick processed by {@link #advance}. */
+    private long currentTick;
+
+    TimerWheel(long tickMillis, long nowMillis) {
+        this.tickMillis = tickMillis;
+        this.currentTick = nowMillis / tickMillis;
+        for (int i = 0; i < LEVELS * SLOTS; i++) {
+            slots.add(new ArrayDeque<>());
+        }
+    }
+
+    /**
+     * Schedules an item. A deadline in the past expires at the next tick.
+     * @return a handle to {@link Entry#cancel} it
+     */
+    @NonNull
+    Entry<T> schedule(@NonNull T item, long deadlineMillis) {
+        long tick = Math.max(Math.floorDiv(deadlineMillis + tickMillis - 1, tickMillis), currentTick + 1);
+        Entry<T> entry = new Entry<>(item, tick);
+        place(entry);
+        return entry;
+    }
+
+    private void place(Entry<T> entry) {
+        long delta = entry.deadlineTick - currentTick;
+        for (int level = 0; level < LEVELS; level++) {
+            if (delta < 1L << (BITS * (level + 1))) {
+                slots.get(level * SLOTS + (int) ((entry.deadlineTick >>> (BITS * level)) & MASK)).add(entry);
+                return;
+            }
+        }
+        overflow.add(entry);
+    }
+
+    /**
+     * Processes every tick up to the given time.
+     * @return entries which expired, not including cancelled ones, in order of deadline
+     */
+    @NonNull
+    List<Entry<T>> advance(long nowMillis) {
+        long nowTick = nowMillis / tickMillis;
+        List<Entry<T>> expired = new ArrayList<>();
+        while (currentTick < nowTick) {
+            currentTick++;
+            // cascade entries from the highest level whose turn is starting, so that they land in lower slots first
+            for (int level = LEVELS - 1; level >= 1; level--) {
+                if ((currentTick & ((1L << (BITS * level)) - 1)) == 0) {
+                    if (level == LEVELS - 1) {
+                        cascade(overflow);
+                    }
+                    cascade(slots.get(level * SLOTS + (int) ((currentTick >>> (BITS * level)) & MASK)));
+                }
+            }
+            ArrayDeque<Entry<T>> slot = slots.get((int) (currentTick & MASK));
+            for (Entry<T> entry; (entry = slot.poll()) != null; ) {
+                if (!entry.cancelled) {
+                    expired.add(entry);
+                }
+            }
+        }
+        return expired;
+    }
+
+    private void cascade(ArrayDeque<Entry<T>> slot) {
+        for (int i = slot.size(); i > 0; i--) {
+            Entry<T> entry = slot.poll();
+            if (!entry.cancelled) {
+                place(entry);
+            }
+        }
+    }
+
+    /**
+     * Skips ahead to the given time without visiting each tick, which is only correct when nothing is scheduled.
+     */
+    void reset(long nowMillis) {
+        currentTick = Math.max(currentTick, nowMillis / tickMillis);
+    }
+}
@@ -0,0 +1,56 @@
+Behaviour.specify("DIV.input-step-lazy-choice", "input-step-lazy-choice", 0, function (div) {
+  var search = div.querySelector(".input-step-lazy-choice-search");
+  var select = div.querySelector("select[name=value]");
+  var more = div.querySelector(".input-step-lazy-choice-more");
+  var error = div.querySelector(".input-step-lazy-choice-error");
+  var selected = select.value;
+  var next = 0;
+  var loaded = false;
+  var timer;
+
+  function load(reset) {
+    loaded = true;
+    var query = new URLSearchParams({ name: div.dataset.name, q: search.value, start: reset ? 0 : next });
+    fetch(div.dataset.url + "?" + query).then(function (rsp) {
+      return rsp.ok ? rsp.json() : Promise.reject("HTTP " + rsp.status);
+    }).then(function (json) {
+      var page = json.data;
+      error.hidden = true;
+      if (reset) {
+        select.replaceChildren();
+      }
+      page.choices.forEach(function (choice) {
+        var option = document.createElement("option");
+        option.value = option.textContent = choice;
+        option.selected = choice === selected;
+        select.appendChild(option);
+      });
+      next = page.start + page.choices.length;
+      more.hidden = next >= page.total;
+      selected = select.value;
+    }).catch(function (x) {
+      loaded = false; // try again on the next focus
+      error.textContent = div.dataset.error + ": " + x;
+      error.hidden = false;
+    });
+  }
+
+  function loadOnce() {
+    if (!loaded) {
+      load(true);
+    }
+  }
+
+  select.addEventListener("focus", loadOnce);
+  search.addEventListener("focus", loadOnce);
+  search.addEventListener("input", function () {
+    clearTimeout(timer);
+    timer = setTimeout(function () { load(true); }, 250);
+  });
+  select.addEventListener("change", function () {
+    selected = select.value;
+  });
+  more.addEventListener("click", function () {
+    load(false);
+  });
+});
@@ -0,0 +1,94 @@
+package org.jenkinsci.plugins.workflow.support.steps.input;
+
+import hudson.model.Item;
+import hudson.model.Job;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import jenkins.benchmark.jmh.JmhBenchmarkState;
+import jenkins.model.Jenkins;
+import org.jenkinsci.plugins.workflow.job.WorkflowJob;
+import org.jvnet.hudson.test.MockAuthorizationStrategy;
+import org.jvnet.hudson.test.MockFolder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+/**
+ * Cost of checking whether a user may settle each of {@link JenkinsState#inputs} pending inputs of a job in nested folders
+ * within one request, as {@code input/abort} does, for a user in 200 groups.
+ * {@link #uncached} evaluates every check for every input as before; {@link #cached} should stay nearly flat.
+ * Run with {@code mvn test -Dtest=BenchmarkRunner}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class AuthorizationCacheBenchmark {
+
+    public static class JenkinsState extends JmhBenchmarkState {
+
+        @Param({"1", "10", "100", "1000"})
+        public int inputs;
+
+        Job<?, ?> job;
+        Authentication user;
+        String submitter;
+        SubmitterMatcher matcher;
+
+        @Override
+        public void setup() throws Exception {
+            Jenkins jenkins = getJenkins();
+            MockFolder team = jenkins.createProject(MockFolder.class, "team");
+            MockFolder services = team.createProject(MockFolder.class, "services");
+            job = services.createProject(WorkflowJob.class, "deploy");
+            jenkins.setAuthorizationStrategy(new MockAuthorizationStrategy().
+                    grant(Jenkins.READ).everywhere().toAuthenticated().
+                    grant(Item.READ, Job.BUILD).onFolders(team).to("developers"));
+            List<GrantedAuthority> groups = new ArrayList<>();
+            for (int i = 0; i < 199; i++) {
+                groups.add(new SimpleGrantedAuthority("group" + i));
+            }
+            groups.add(new SimpleGrantedAuthority("developers"));
+            user = new UsernamePasswordAuthenticationToken("alice", "", groups);
+            submitter = "bob,release-managers";
+            matcher = new SubmitterMatcher(submitter, jenkins.getSecurityRealm().getUserIdStrategy(), jenkins.getSecurityRealm().getGroupIdStrategy());
+        }
+    }
+
+    @Benchmark
+    public int uncached(JenkinsState state) {
+        int allowed = 0;
+        for (int i = 0; i < state.inputs; i++) {
+            if (canAbort(new AuthorizationCache(state.user), state)) {
+                allowed++;
+            }
+        }
+        return allowed;
+    }
+
+    @Benchmark
+    public int cached(JenkinsState state) {
+        AuthorizationCache cache = new AuthorizationCache(state.user);
+        int allowed = 0;
+        for (int i = 0; i < state.inputs; i++) {
+            if (canAbort(cache, state)) {
+                allowed++;
+            }
+        }
+        return allowed;
+    }
+
+    /**
+     * The checks made by {@code InputStepExecution.preAbortCheck} for an input with a submitter.
+     */
+    private static boolean canAbort(AuthorizationCache cache, JenkinsState state) {
+        return cache.hasPermission(state.job, Job.CANCEL)
+                || cache.hasPermission(Jenkins.get(), Jenkins.ADMINISTER)
+                || cache.isSubmitter(state.submitter, state.matcher);
+    }
+}
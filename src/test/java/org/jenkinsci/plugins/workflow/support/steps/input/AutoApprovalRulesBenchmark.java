@@ -0,0 +1,54 @@
+package org.jenkinsci.plugins.workflow.support.steps.input;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Cost of finding the {@link AutoApprovalRule} for an input as the number of rules grows,
+ * most naming a job exactly and some with a pattern, spread over many input IDs.
+ * Rules for other input IDs, or naming other jobs exactly, cost nothing; but rules with a pattern of jobs
+ * for the same input ID are tried one by one, so scores grow linearly with their number.
+ * This only measures; it checks nothing.
+ * Run with {@code mvn test -Dtest=BenchmarkRunner}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class AutoApprovalRulesBenchmark {
+
+    @Param({"10", "100", "1000", "10000"})
+    public int rules;
+
+    private AutoApprovalRules.Index index;
+    private long now;
+
+    @Setup
+    public void setUp() {
+        List<AutoApprovalRule> list = new ArrayList<>();
+        for (int i = 0; i < rules; i++) {
+            String job = i % 10 == 0 ? "team" + i + "/*" : "team" + i + "/service";
+            list.add(new AutoApprovalRule("rule" + i, "Deploy-" + (i % 50), job, "main", List.of()));
+        }
+        index = new AutoApprovalRules.Index(list);
+        now = System.currentTimeMillis();
+    }
+
+    @Benchmark
+    public AutoApprovalRule hit() {
+        return index.match("team" + (rules - 1) + "/service", "Deploy-" + ((rules - 1) % 50), "main", now);
+    }
+
+    @Benchmark
+    public AutoApprovalRule miss() {
+        return index.match("elsewhere/service", "Deploy-7", "main", now);
+    }
+}
@@ -0,0 +1,102 @@
+package org.jenkinsci.plugins.workflow.support.steps.input;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import java.time.Instant;
+import java.util.List;
+import jenkins.model.Jenkins;
+import net.sf.json.JSONArray;
+import net.sf.json.JSONObject;
+import org.htmlunit.HttpMethod;
+import org.htmlunit.WebRequest;
+import org.jenkinsci.plugins.workflow.cps.CpsFlowDefinition;
+import org.jenkinsci.plugins.workflow.job.WorkflowJob;
+import org.jenkinsci.plugins.workflow.job.WorkflowRun;
+import org.junit.ClassRule;
+import org.junit.Rule;
+import org.junit.Test;
+import org.jvnet.hudson.test.BuildWatcher;
+import org.jvnet.hudson.test.JenkinsRule;
+import org.jvnet.hudson.test.MockAuthorizationStrategy;
+import org.jvnet.hudson.test.WithoutJenkins;
+
+public class AutoApprovalRulesTest {
+
+    @ClassRule public static BuildWatcher buildWatcher = new BuildWatcher();
+    @Rule public JenkinsRule j = new JenkinsRule();
+
+    private static AutoApprovalRule rule(String json) {
+        return AutoApprovalRule.fromJSON(JSONObject.fromObject(json));
+    }
+
+    @WithoutJenkins
+    @Test public void matching() {
+        long now = Instant.parse("2026-12-24T12:00:00Z").toEpochMilli();
+        AutoApprovalRules.Index index = new AutoApprovalRules.Index(List.of(
+            rule("{id: 'frozen', input: 'Deploy', job: 'services/api', freezes: [{start: '2026-12-20T00:00:00Z', end: '2027-01-04T00:00:00Z'}]}"),
+            rule("{id: 'services', input: 'Deploy', job: 'services/*', branch: 'main'}"),
+            rule("{id: 'api', input: 'Deploy', job: 'services/api'}"),
+            rule("{id: 'anywhere', input: 'Test', job: '**', branch: 'release-*'}")));
+        assertEquals("services", index.match("services/api", "Deploy", "main", now).getId());
+        assertEquals("api", index.match("services/api", "Deploy", "feature", now).getId());
+        assertEquals("frozen", index.match("services/api", "Deploy", "main", now - 5 * 24 * 3600_000L).getId());
+        assertNull(index.match("services/web", "Deploy", "feature", now));
+        assertNull(index.match("services/web/nested", "Deploy", "main", now));
+        assertNull(index.match("services/web", "Deploy", null, now));
+        assertEquals("anywhere", index.match("a/b/c", "Test", "release-1.0", now).getId());
+        assertNull(index.match("a/b/c", "Other", "release-1.0", now));
+        assertEquals(List.of("frozen", "services", "api"), index.candidates("services/api", "Deploy").stream().map(AutoApprovalRule::getId).toList());
+        assertEquals(List.of("services"), index.candidates("services/web", "Deploy").stream().map(AutoApprovalRule::getId).toList());
+        assertEquals(List.of(), index.candidates("services/api", "Other"));
+        assertThrows(IllegalArgumentException.class, () -> rule("{id: 'x'}"));
+        assertThrows(IllegalArgumentException.class, () -> rule("{id: 'x', input: 'y', freezes: [{start: 'tomorrow', end: 'later'}]}"));
+    }
+
+    @Test public void approvesAtStart() throws Exception {
+        j.jenkins.setSecurityRealm(j.createDummySecurityRealm());
+        j.jenkins.setAuthorizationStrategy(new MockAuthorizationStrategy().
+            grant(Jenkins.ADMINISTER).everywhere().to("admin").
+            grant(Jenkins.READ).everywhere().to("alice"));
+        WorkflowJob p = j.createProject(WorkflowJob.class, "p");
+        p.setDefinition(new CpsFlowDefinition(
+            "echo(/region=${input id: 'Deploy-Staging', message: 'deploy?', parameters: [string(name: 'region', defaultValue: 'eu')]}/)", true));
+        JSONArray rules = new JSONArray().element(new JSONObject().element("id", "staging").element("input", "Deploy-Staging").element("job", "p"));
+        assertEquals(403, configure("alice", rules));
+        assertEquals(200, configure("admin", rules));
+
+        WorkflowRun b = j.buildAndAssertSuccess(p);
+        j.assertLogContains("Approved by rule staging", b);
+        j.assertLogContains("region=eu", b);
+        assertNull(b.getAction(InputAction.class));
+        assertNull(b.getAction(ApproverAction.class));
+
+        assertEquals(200, configure("admin", new JSONArray()));
+        b = p.scheduleBuild2(0).waitForStart();
+        j.waitForMessage("deploy?", b);
+        b.doStop();
+        j.waitForCompletion(b);
+    }
+
+    @Test public void branchNotTakenFromEnvironment() throws Exception {
+        WorkflowJob p = j.createProject(WorkflowJob.class, "p");
+        p.setDefinition(new CpsFlowDefinition("withEnv(['BRANCH_NAME=main']) {input id: 'Deploy-Staging', message: 'deploy?'}", true));
+        AutoApprovalRules.get().setRules(List.of(rule("{id: 'staging-on-main', input: 'Deploy-Staging', job: 'p', branch: 'main'}")));
+        WorkflowRun b = p.scheduleBuild2(0).waitForStart();
+        j.waitForMessage("deploy?", b);
+        j.assertLogNotContains("Approved by rule", b);
+        assertTrue(b.getAction(InputAction.class).isWaitingForInput());
+        b.doStop();
+        j.waitForCompletion(b);
+    }
+
+    private int configure(String user, JSONArray rules) throws Exception {
+        JenkinsRule.WebClient wc = j.createWebClient().withThrowExceptionOnFailingStatusCode(false).login(user);
+        WebRequest req = new WebRequest(wc.createCrumbedUrl("pendingInputs/autoApprovalRules/configure"), HttpMethod.POST);
+        req.setAdditionalHeader("Content-Type", "application/json");
+        req.setRequestBody(new JSONObject().element("rules", rules).toString());
+        return wc.getPage(req).getWebResponse().getStatusCode();
+    }
+}
@@ -0,0 +1,27 @@
+package org.jenkinsci.plugins.workflow.support.steps.input;
+
+import org.junit.Test;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the JMH benchmarks in this package.
+ * Not matched by the default Surefire includes; run explicitly with {@code mvn test -Dtest=BenchmarkRunner}.
+ */
+public class BenchmarkRunner {
+
+    @Test
+    public void runJmhBenchmarks() throws Exception {
+        new Runner(new OptionsBuilder()
+                .include(getClass().getPackage().getName() + "\\..*Benchmark")
+                .warmupIterations(2)
+                .measurementIterations(3)
+                .forks(1)
+                .shouldFailOnError(true)
+                .shouldDoGC(true)
+                .resultFormat(ResultFormatType.JSON)
+                .result("target/jmh-report.json")
+                .build()).run();
+    }
+}
@@ -0,0 +1,115 @@
+package org.jenkinsci.plugins.workflow.support.steps.input;
+
+import static org.awaitility.Awaitility.await;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import hudson.model.Item;
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import jenkins.model.Jenkins;
+import net.sf.json.JSONObject;
+import org.jenkinsci.plugins.workflow.cps.CpsFlowDefinition;
+import org.jenkinsci.plugins.workflow.job.WorkflowJob;
+import org.jenkinsci.plugins.workflow.job.WorkflowRun;
+import org.junit.ClassRule;
+import org.junit.Rule;
+import org.junit.Test;
+import org.jvnet.hudson.test.BuildWatcher;
+import org.jvnet.hudson.test.JenkinsRule;
+import org.jvnet.hudson.test.MockAuthorizationStrategy;
+
+public class InputEventStreamTest {
+
+    @ClassRule public static BuildWatcher buildWatcher = new BuildWatcher();
+    @Rule public JenkinsRule j = new JenkinsRule();
+
+    @Test public void dropsSlowSubscribers() {
+        InputEventStream stream = new InputEventStream();
+        InputEventStream.Subscriber slow = stream.subscribe(2);
+        InputEventStream.Subscriber fast = stream.subscribe(2);
+        InputEvent event = new InputEvent(InputEvent.Type.PAUSED, "p", 1, "p#1", "Ok", "ok?", null, null);
+        stream.publish(event);
+        assertEquals(event, fast.buffer.poll());
+        stream.publish(event);
+        assertEquals(event, fast.buffer.poll());
+        assertFalse(slow.dropped);
+        stream.publish(event);
+        assertTrue(slow.dropped);
+        assertTrue(slow.buffer.isEmpty());
+        assertFalse(fast.dropped);
+        assertEquals(1, stream.getSubscriberCount());
+    }
+
+    @Test public void stream() throws Exception {
+        j.jenkins.setSecurityRealm(j.createDummySecurityRealm());
+        WorkflowJob visible = j.createProject(WorkflowJob.class, "visible");
+        WorkflowJob hidden = j.createProject(WorkflowJob.class, "hidden");
+        j.jenkins.setAuthorizationStrategy(new MockAuthorizationStrategy().
+            grant(Jenkins.READ).everywhere().toEveryone().
+            grant(Item.READ).onItems(visible).toEveryone());
+        visible.setDefinition(new CpsFlowDefinition("input id: 'Ok', message: 'ok?'", true));
+        hidden.setDefinition(new CpsFlowDefinition("input id: 'Secret', message: 'secret?'", true));
+
+        BlockingQueue<String> events = new LinkedBlockingQueue<>();
+        HttpURLConnection connection = (HttpURLConnection) new URL(j.getURL(), "pendingInputs/events").openConnection();
+        Thread reader = new Thread(() -> {
+            try (BufferedReader r = new BufferedReader(new InputStreamReader(connection.getInputStream(), StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = r.readLine()) != null) {
+                    if (line.startsWith("data: ")) {
+                        events.add(line.substring("data: ".length()));
+                    } else if (line.equals(": connected")) {
+                        events.add("connected");
+                    }
+                }
+            } catch (Exception x) {
+                // disconnected
+            }
+        });
+        reader.start();
+        try {
+            assertEquals("connected", events.poll(30, TimeUnit.SECONDS));
+            // registered once the connection is handed over to asynchronous writes
+            await().until(() -> InputEventStream.get().getSubscriberCount() == 1);
+            WorkflowRun h = hidden.scheduleBuild2(0).waitForStart();
+            j.waitForMessage("secret?", h);
+            WorkflowRun v = visible.scheduleBuild2(0).waitForStart();
+            j.waitForMessage("ok?", v);
+            JSONObject paused = JSONObject.fromObject(next(events));
+            assertEquals("paused", paused.getString("type"));
+            assertEquals("visible", paused.getString("job"));
+            assertEquals("Ok", paused.getString("id"));
+            v.getAction(InputAction.class).getExecution("Ok").proceed((Map<String, Object>) null);
+            j.assertBuildStatusSuccess(j.waitForCompletion(v));
+            JSONObject approved = JSONObject.fromObject(next(events));
+            assertEquals("approved", approved.getString("type"));
+            assertEquals(v.getExternalizableId(), approved.getString("run"));
+            h.doStop();
+            j.waitForCompletion(h);
+            WorkflowRun v2 = visible.scheduleBuild2(0).waitForStart();
+            j.waitForMessage("ok?", v2);
+            v2.doStop();
+            j.waitForCompletion(v2);
+            assertEquals("paused", JSONObject.fromObject(next(events)).getString("type"));
+            assertEquals("stopped", JSONObject.fromObject(next(events)).getString("type"));
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    private static String next(BlockingQueue<String> events) throws InterruptedException {
+        String event = events.poll(30, TimeUnit.SECONDS);
+        assertNotNull("timed out waiting for an event", event);
+        return event;
+    }
+}
@@ -0,0 +1,110 @@
+package org.jenkinsci.plugins.workflow.support.steps.input;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.jenkinsci.plugins.workflow.cps.CpsFlowDefinition;
+import org.jenkinsci.plugins.workflow.job.WorkflowJob;
+import org.jenkinsci.plugins.workflow.job.WorkflowRun;
+import org.junit.ClassRule;
+import org.junit.Rule;
+import org.junit.Test;
+import org.jvnet.hudson.test.BuildWatcher;
+import org.jvnet.hudson.test.JenkinsRule;
+import org.jvnet.hudson.test.TestExtension;
+import org.jvnet.hudson.test.WithoutJenkins;
+
+public class InputRemindersTest {
+
+    private static final long HOUR = TimeUnit.HOURS.toMillis(1);
+
+    @ClassRule public static BuildWatcher buildWatcher = new BuildWatcher();
+    @Rule public JenkinsRule j = new JenkinsRule();
+
+    @WithoutJenkins
+    @Test public void parse() {
+        assertEquals(List.of(TimeUnit.SECONDS.toMillis(30), HOUR, 4 * HOUR, TimeUnit.DAYS.toMillis(1)), InputReminders.parse("4h, 30s,1h,1D, 4h"));
+        assertThrows(IllegalArgumentException.class, () -> InputReminders.parse("1w"));
+        assertThrows(IllegalArgumentException.class, () -> InputReminders.parse("0h"));
+        assertThrows(IllegalArgumentException.class, () -> InputReminders.parse("1h,,2h"));
+    }
+
+    @Test public void digests() throws Exception {
+        WorkflowRun b1 = pause("deploy?", "submitter: 'alice,ops', reminders: '1h,4h'");
+        WorkflowRun b2 = pause("release?", "submitter: 'alice', reminders: '1h'");
+        WorkflowRun b3 = pause("anyone?", "reminders: '4h'");
+        WorkflowRun b4 = pause("quiet?", "ok: 'Go'");
+        InMemoryNotifier notifier = j.jenkins.getExtensionList(InputReminderNotifier.class).get(InMemoryNotifier.class);
+        long first = PendingInputRegistry.get().all().iterator().next().getSince();
+        long last = b4.getAction(InputAction.class).getExecutions().get(0).getPauseStartTime();
+        InputReminders reminders = InputReminders.get();
+
+        reminders.deliver(reminders.sweep(first, first + HOUR - 1));
+        assertEquals(Map.of(), notifier.digests);
+
+        reminders.deliver(reminders.sweep(first + HOUR - 1, last + HOUR));
+        // one digest per recipient, covering every build
+        assertEquals(Map.of("alice", List.of(b1.getExternalizableId(), b2.getExternalizableId()), "ops", List.of(b1.getExternalizableId())), notifier.digests);
+        assertEquals(2, notifier.calls);
+
+        notifier.clear();
+        reminders.deliver(reminders.sweep(last + HOUR, last + 2 * HOUR));
+        assertEquals(Map.of(), notifier.digests);
+
+        reminders.deliver(reminders.sweep(last + 2 * HOUR, last + 5 * HOUR));
+        Map<String, List<String>> expected = new LinkedHashMap<>();
+        expected.put("alice", List.of(b1.getExternalizableId()));
+        expected.put("ops", List.of(b1.getExternalizableId()));
+        expected.put(null, List.of(b3.getExternalizableId()));
+        assertEquals(expected, notifier.digests);
+
+        // several thresholds crossed in one period make one reminder, for the highest
+        notifier.clear();
+        reminders.deliver(reminders.sweep(first - 1, last + 5 * HOUR));
+        assertEquals(List.of(b1.getExternalizableId(), b2.getExternalizableId()), notifier.digests.get("alice"));
+        assertEquals(List.of(4 * HOUR, 4 * HOUR, HOUR, 4 * HOUR), notifier.thresholds);
+
+        for (WorkflowRun b : List.of(b1, b2, b3, b4)) {
+            b.doStop();
+            j.waitForCompletion(b);
+        }
+        notifier.clear();
+        reminders.deliver(reminders.sweep(0, Long.MAX_VALUE));
+        assertEquals(Map.of(), notifier.digests);
+    }
+
+    private WorkflowRun pause(String message, String options) throws Exception {
+        WorkflowJob p = j.createProject(WorkflowJob.class);
+        p.setDefinition(new CpsFlowDefinition("input message: '" + message + "', " + options, true));
+        WorkflowRun b = p.scheduleBuild2(0).waitForStart();
+        j.waitForMessage(message, b);
+        return b;
+    }
+
+    @TestExtension("digests") public static final class InMemoryNotifier extends InputReminderNotifier {
+        final Map<String, List<String>> digests = new LinkedHashMap<>();
+        final List<Long> thresholds = new ArrayList<>();
+        int calls;
+
+        @Override public synchronized void remind(String recipient, List<Reminder> reminders) {
+            calls++;
+            List<String> runs = new ArrayList<>();
+            for (Reminder reminder : reminders) {
+                runs.add(reminder.getInput().getRunId());
+                thresholds.add(reminder.getThreshold());
+            }
+            digests.put(recipient, runs);
+        }
+
+        synchronized void clear() {
+            digests.clear();
+            thresholds.clear();
+            calls = 0;
+        }
+    }
+}
@@ -25,6 +25,7 @@
 package org.jenkinsci.plugins.workflow.support.steps.input;
 
 import java.util.Collections;
+import java.util.concurrent.TimeUnit;
 
 import org.jenkinsci.plugins.structs.describable.DescribableModel;
 import org.jenkinsci.plugins.workflow.steps.StepConfigTester;
@@ -46,6 +47,13 @@ public class InputStepConfigTest {
         assertEquals(s1.getParameters(), s2.getParameters());
         assertEquals(s1.getOk(), s2.getOk());
         assertEquals(s1.getSubmitter(), s2.getSubmitter());
+        s1.setTimeout(90);
+        s1.setTimeoutUnit(TimeUnit.SECONDS);
+        s1.setTimeoutAction(InputStep.TimeoutAction.PROCEED);
+        s2 = new StepConfigTester(r).configRoundTrip(s1);
+        assertEquals(90, s2.getTimeout());
+        assertEquals(TimeUnit.SECONDS, s2.getTimeoutUnit());
+        assertEquals(InputStep.TimeoutAction.PROCEED, s2.getTimeoutAction());
     }
 
     @Issue("JENKINS-25779")
@@ -0,0 +1,62 @@
+package org.jenkinsci.plugins.workflow.support.steps.input;
+
+import static org.awaitility.Awaitility.await;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import org.junit.Test;
+
+public class InputStepExecutorTest {
+
+    @Test public void boundedQueueOverflowsWithoutBlocking() throws Exception {
+        List<Runnable> overflow = new ArrayList<>();
+        InputStepExecutor executor = new InputStepExecutor(1, 2, false, overflow::add);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch ran = new CountDownLatch(3);
+        Runnable task = () -> {
+            try {
+                release.await();
+            } catch (InterruptedException x) {
+                throw new AssertionError(x);
+            }
+            ran.countDown();
+        };
+        executor.submit(task); // running
+        await().until(() -> executor.getQueueDepth() == 0);
+        executor.submit(task); // queued
+        executor.submit(task); // queued
+        executor.submit(task); // overflow
+        assertEquals(2, executor.getQueueDepth());
+        assertEquals(1, executor.getOverflowedTasks());
+        assertEquals(1, overflow.size());
+        release.countDown();
+        ran.await();
+        await().until(() -> executor.getCompletedTasks() == 3);
+        assertEquals(0, executor.getQueueDepth());
+    }
+
+    @Test public void latency() throws Exception {
+        InputStepExecutor executor = new InputStepExecutor(2, 10, true, Runnable::run);
+        for (int i = 0; i < 5; i++) {
+            executor.submit(() -> {
+                try {
+                    Thread.sleep(20);
+                } catch (InterruptedException x) {
+                    throw new AssertionError(x);
+                }
+            });
+        }
+        await().until(() -> executor.getCompletedTasks() == 5);
+        assertTrue(executor.getAverageLatencyMillis() >= 20);
+        assertTrue(executor.getMaxLatencyMillis() >= executor.getAverageLatencyMillis());
+        assertEquals(5, executor.getRecentTasks());
+        for (int i = 0; i < InputStepExecutor.RECENT; i++) {
+            executor.submit(() -> {});
+        }
+        await().until(() -> executor.getCompletedTasks() == 5 + InputStepExecutor.RECENT);
+        assertEquals(InputStepExecutor.RECENT, executor.getRecentTasks());
+    }
+}
@@ -0,0 +1,98 @@
+package org.jenkinsci.plugins.workflow.support.steps.input;
+
+import static org.awaitility.Awaitility.await;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.startsWith;
+
+import hudson.model.Result;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import org.jenkinsci.plugins.workflow.cps.CpsFlowDefinition;
+import org.jenkinsci.plugins.workflow.job.WorkflowJob;
+import org.jenkinsci.plugins.workflow.job.WorkflowRun;
+import org.junit.ClassRule;
+import org.junit.Rule;
+import org.junit.Test;
+import org.jvnet.hudson.test.BuildWatcher;
+import org.jvnet.hudson.test.JenkinsRule;
+import org.jvnet.hudson.test.TestExtension;
+
+public class InputStepListenerTest {
+
+    @ClassRule public static BuildWatcher buildWatcher = new BuildWatcher();
+    @Rule public JenkinsRule j = new JenkinsRule();
+
+    @Test public void slowListenerDoesNotDelayBuild() throws Exception {
+        WorkflowJob p = j.createProject(WorkflowJob.class, "p");
+        p.setDefinition(new CpsFlowDefinition("input id: 'Ok', message: 'ok?'; input id: 'No', message: 'no?'", true));
+        Recording recording = j.jenkins.getExtensionList(InputStepListener.class).get(Recording.class);
+        Slow slow = j.jenkins.getExtensionList(InputStepListener.class).get(Slow.class);
+        WorkflowRun b = p.scheduleBuild2(0).waitForStart();
+        j.waitForMessage("ok?", b);
+        // the slow listener is now stuck on the first event, yet the build proceeds
+        b.getAction(InputAction.class).getExecution("Ok").proceed((Map<String, Object>) null);
+        j.waitForMessage("no?", b);
+        b.getAction(InputAction.class).getExecution("No").doAbort();
+        j.assertBuildStatus(Result.ABORTED, j.waitForCompletion(b));
+        // nor other listeners
+        await().until(() -> recording.events.size() == 4);
+        assertThat(recording.events, contains("PAUSED Ok", "APPROVED Ok", "PAUSED No", "REJECTED No"));
+        assertThat(slow.events, empty());
+        slow.release.countDown();
+        await().until(() -> slow.events.size() == 4);
+        assertThat(slow.events, contains("PAUSED Ok", "APPROVED Ok", "PAUSED No", "REJECTED No"));
+    }
+
+    @Test public void stopped() throws Exception {
+        Recording recording = j.jenkins.getExtensionList(InputStepListener.class).get(Recording.class);
+        j.jenkins.getExtensionList(InputStepListener.class).get(Slow.class).release.countDown();
+        WorkflowJob p = j.createProject(WorkflowJob.class, "p");
+        p.setDefinition(new CpsFlowDefinition("input id: 'Ok', message: 'ok?'", true));
+        WorkflowRun b = p.scheduleBuild2(0).waitForStart();
+        j.waitForMessage("ok?", b);
+        b.doStop();
+        j.waitForCompletion(b);
+        await().until(() -> recording.events.size() == 2);
+        assertThat(recording.events, contains("PAUSED Ok", "STOPPED Ok"));
+        assertThat(recording.stopCauses, contains(startsWith("ABORTED")));
+    }
+
+    @TestExtension public static final class Recording extends InputStepListener {
+        final List<String> events = new CopyOnWriteArrayList<>();
+        @Override public void onPaused(InputEvent event) {
+            events.add("PAUSED " + event.getId());
+        }
+        @Override public void onApproved(InputEvent event) {
+            events.add("APPROVED " + event.getId());
+        }
+        @Override public void onRejected(InputEvent event) {
+            events.add("REJECTED " + event.getId());
+        }
+        final List<String> stopCauses = new CopyOnWriteArrayList<>();
+        @Override public void onStopped(InputEvent event) {
+            stopCauses.add(event.getCause());
+            events.add("STOPPED " + event.getId());
+        }
+    }
+
+    /** Blocks until released, then records whole batches; also checks that a failing listener does not stop delivery. */
+    @TestExtension(ordinal = 100) public static final class Slow extends InputStepListener {
+        final CountDownLatch release = new CountDownLatch(1);
+        final List<String> events = new CopyOnWriteArrayList<>();
+        @Override public void onEvents(List<InputEvent> batch) {
+            try {
+                release.await();
+            } catch (InterruptedException x) {
+                throw new RuntimeException(x);
+            }
+            for (InputEvent event : batch) {
+                events.add(event.getType() + " " + event.getId());
+            }
+            throw new IllegalStateException("deliberately failing after recording");
+        }
+    }
+}
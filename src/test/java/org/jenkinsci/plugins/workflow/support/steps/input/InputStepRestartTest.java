@@ -29,7 +29,13 @@ import hudson.model.Result;
 import java.io.File;
 import java.util.ArrayList;
 import java.util.List;
+import net.sf.json.JSONArray;
+import net.sf.json.JSONObject;
 import org.apache.commons.io.FileUtils;
+import org.htmlunit.HttpMethod;
+import org.htmlunit.WebRequest;
+import org.htmlunit.html.HtmlForm;
+import org.htmlunit.html.HtmlPage;
 import org.jenkinsci.plugins.workflow.cps.CpsFlowDefinition;
 import org.jenkinsci.plugins.workflow.graph.FlowGraphWalker;
 import org.jenkinsci.plugins.workflow.graph.FlowNode;
@@ -38,6 +44,8 @@ import org.jenkinsci.plugins.workflow.job.WorkflowRun;
 import org.jenkinsci.plugins.workflow.support.actions.PauseAction;
 
 import static org.awaitility.Awaitility.await;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
 import static org.hamcrest.Matchers.notNullValue;
 import static org.junit.Assert.*;
 import org.junit.ClassRule;
@@ -69,6 +77,193 @@ public class InputStepRestartTest {
         });
     }
     
+    @Test public void restoreInBackground() throws Throwable {
+        sessions.then(j -> {
+                WorkflowJob p = j.createProject(WorkflowJob.class, "p");
+                p.setDefinition(new CpsFlowDefinition("input 'paused'", true));
+                WorkflowRun b = p.scheduleBuild2(0).waitForStart();
+                j.waitForMessage("paused", b);
+        });
+        sessions.then(j -> {
+                WorkflowRun b = j.jenkins.getItemByFullName("p", WorkflowJob.class).getBuildByNumber(1);
+                InputAction a = b.getAction(InputAction.class);
+                assertNotNull(a);
+                // answered without waiting for the program, from the persisted IDs if need be
+                assertTrue(a.isWaitingForInput());
+                List<InputStepExecution> executions = await().until(a::getExecutionsIfRestored, notNullValue());
+                assertFalse(a.isRestoring());
+                assertEquals(1, executions.size());
+                proceed(b, j);
+                j.assertBuildStatusSuccess(j.waitForCompletion(b));
+                sanity(b);
+        });
+    }
+
+    @Test public void renderBeforeRestore() throws Throwable {
+        sessions.then(j -> {
+                WorkflowJob p = j.createProject(WorkflowJob.class, "p");
+                p.setDefinition(new CpsFlowDefinition("echo(/got ${input message: 'Which flavor?', ok: 'Order', submitter: 'alice', parameters: [string(name: 'flavor', defaultValue: 'vanilla')]}/)", true));
+                WorkflowRun b = p.scheduleBuild2(0).waitForStart();
+                j.waitForMessage("Input requested", b);
+        });
+        sessions.then(j -> {
+                WorkflowRun b = j.jenkins.getItemByFullName("p", WorkflowJob.class).getBuildByNumber(1);
+                InputAction a = b.getAction(InputAction.class);
+                PendingInput pending = PendingInputRegistry.get().get(b.getExternalizableId(), a.getSnapshots().get(0).getId());
+                assertEquals("Which flavor?", pending.getMessage());
+                assertEquals("alice", pending.getSubmitter());
+                HtmlPage page = j.createWebClient().getPage(b, a.getUrlName());
+                HtmlForm form = page.getFormByName(a.getSnapshots().get(0).getId());
+                assertEquals("vanilla", form.getInputByName("value").getValue());
+                assertNotNull(form.getButtonByName("proceed"));
+                // nothing needed the program so far
+                assertTrue(a.isRestoring());
+                j.submit(form, "proceed");
+                j.assertBuildStatusSuccess(j.waitForCompletion(b));
+                j.assertLogContains("got vanilla", b);
+                assertFalse(a.isRestoring());
+                assertTrue(a.getSnapshots().isEmpty());
+        });
+    }
+
+    @Test public void proceedJsonBeforeRestore() throws Throwable {
+        sessions.then(j -> {
+                WorkflowJob p = j.createProject(WorkflowJob.class, "p");
+                p.setDefinition(new CpsFlowDefinition("echo(/got ${input id: 'Release', message: 'Which flavor?', parameters: [string(name: 'flavor', defaultValue: 'vanilla')]}/)", true));
+                WorkflowRun b = p.scheduleBuild2(0).waitForStart();
+                j.waitForMessage("Input requested", b);
+        });
+        sessions.then(j -> {
+                WorkflowRun b = j.jenkins.getItemByFullName("p", WorkflowJob.class).getBuildByNumber(1);
+                assertTrue(b.getAction(InputAction.class).isRestoring());
+                JenkinsRule.WebClient wc = j.createWebClient();
+                WebRequest req = new WebRequest(wc.createCrumbedUrl("job/p/1/input/Release/proceedJson"), HttpMethod.POST);
+                req.setAdditionalHeader("Content-Type", "application/json");
+                req.setRequestBody("{\"flavor\": \"chocolate\"}");
+                assertEquals("ok", JSONObject.fromObject(wc.getPage(req).getWebResponse().getContentAsString()).getString("status"));
+                j.assertBuildStatusSuccess(j.waitForCompletion(b));
+                j.assertLogContains("got chocolate", b);
+        });
+    }
+
+    @Test public void boundedApiExport() throws Throwable {
+        sessions.then(j -> {
+                WorkflowJob p = j.createProject(WorkflowJob.class, "p");
+                p.setDefinition(new CpsFlowDefinition("input 'paused'", true));
+                for (int i = 0; i < 3; i++) {
+                    WorkflowRun b = p.scheduleBuild2(0).waitForStart();
+                    j.waitForMessage("paused", b);
+                }
+        });
+        System.setProperty(InputAction.class.getName() + ".RESTORATIONS_PER_REQUEST", "1");
+        try {
+            sessions.then(j -> {
+                    WorkflowJob p = j.jenkins.getItemByFullName("p", WorkflowJob.class);
+                    JenkinsRule.WebClient wc = j.createWebClient();
+                    JSONArray builds = wc.getJSON("job/p/api/json?tree=builds[actions[inputs[id,message],waitingForInput]]").getJSONObject().getJSONArray("builds");
+                    assertEquals(3, builds.size());
+                    for (Object build : builds) {
+                        JSONObject action = inputAction(((JSONObject) build).getJSONArray("actions"));
+                        assertTrue(action.getBoolean("waitingForInput"));
+                        assertEquals("paused", action.getJSONArray("inputs").getJSONObject(0).getString("message"));
+                    }
+                    // the summary restores nothing
+                    for (WorkflowRun b : p.getBuilds()) {
+                        assertTrue(b.getAction(InputAction.class).isRestoring());
+                    }
+                    wc.getJSON("job/p/api/json?tree=builds[actions[executions[id]]]");
+                    await().until(() -> p.getBuilds().stream().filter(b -> !b.getAction(InputAction.class).isRestoring()).count() == 1);
+                    Thread.sleep(1000);
+                    assertEquals(2, p.getBuilds().stream().filter(b -> b.getAction(InputAction.class).isRestoring()).count());
+            });
+        } finally {
+            System.clearProperty(InputAction.class.getName() + ".RESTORATIONS_PER_REQUEST");
+        }
+    }
+
+    @Test public void boundedDepthExport() throws Throwable {
+        sessions.then(j -> {
+                WorkflowJob p = j.createProject(WorkflowJob.class, "p");
+                p.setDefinition(new CpsFlowDefinition("input 'paused'", true));
+                for (int i = 0; i < 3; i++) {
+                    WorkflowRun b = p.scheduleBuild2(0).waitForStart();
+                    j.waitForMessage("paused", b);
+                }
+        });
+        System.setProperty(InputAction.class.getName() + ".RESTORATIONS_PER_REQUEST", "1");
+        try {
+            sessions.then(j -> {
+                    WorkflowJob p = j.jenkins.getItemByFullName("p", WorkflowJob.class);
+                    JSONArray builds = j.createWebClient().getJSON("job/p/api/json?depth=2").getJSONObject().getJSONArray("builds");
+                    assertEquals(3, builds.size());
+                    for (Object build : builds) {
+                        assertTrue(inputAction(((JSONObject) build).getJSONArray("actions")).getBoolean("waitingForInput"));
+                    }
+                    Thread.sleep(1000);
+                    // every getter together started at most the one restoration allowed
+                    assertThat(p.getBuilds().stream().filter(b -> b.getAction(InputAction.class).isRestoring()).count(), greaterThanOrEqualTo(2L));
+            });
+        } finally {
+            System.clearProperty(InputAction.class.getName() + ".RESTORATIONS_PER_REQUEST");
+        }
+    }
+
+    private static JSONObject inputAction(JSONArray actions) {
+        for (Object action : actions) {
+            if (InputAction.class.getName().equals(((JSONObject) action).optString("_class"))) {
+                return (JSONObject) action;
+            }
+        }
+        throw new AssertionError(actions);
+    }
+
+    @Test public void warmUp() throws Throwable {
+        sessions.then(j -> {
+                WorkflowJob p = j.createProject(WorkflowJob.class, "p");
+                p.setDefinition(new CpsFlowDefinition("input 'paused'", true));
+                for (int i = 0; i < 3; i++) {
+                    WorkflowRun b = p.scheduleBuild2(0).waitForStart();
+                    j.waitForMessage("paused", b);
+                }
+        });
+        System.setProperty(InputWarmup.class.getName() + ".PARALLELISM", "2");
+        try {
+            sessions.then(j -> {
+                    InputWarmup warmUp = InputWarmup.get();
+                    await().until(warmUp::isDone);
+                    assertEquals(3, warmUp.getTotal());
+                    assertEquals(3, warmUp.getRestored());
+                    assertEquals(0, warmUp.getFailed());
+                    for (WorkflowRun b : j.jenkins.getItemByFullName("p", WorkflowJob.class).getBuilds()) {
+                        // restored without anyone asking
+                        assertFalse(b.getAction(InputAction.class).isRestoring());
+                        proceed(b, j);
+                        j.assertBuildStatusSuccess(j.waitForCompletion(b));
+                    }
+            });
+        } finally {
+            System.clearProperty(InputWarmup.class.getName() + ".PARALLELISM");
+        }
+    }
+
+    @Test public void timeoutAcrossRestart() throws Throwable {
+        sessions.then(j -> {
+                WorkflowJob p = j.createProject(WorkflowJob.class, "p");
+                p.setDefinition(new CpsFlowDefinition("echo(/got ${input message: 'Which flavor?', timeout: 5, timeoutUnit: 'SECONDS', timeoutAction: 'PROCEED', parameters: [string(name: 'flavor', defaultValue: 'vanilla')]}/)", true));
+                WorkflowRun b = p.scheduleBuild2(0).waitForStart();
+                j.waitForMessage("Input requested", b);
+                assertEquals(1, InputTimeouts.get().size());
+        });
+        sessions.then(j -> {
+                WorkflowRun b = j.jenkins.getItemByFullName("p", WorkflowJob.class).getBuildByNumber(1);
+                // rescheduled from the snapshot, and the program loaded only once the deadline passed
+                j.assertBuildStatusSuccess(j.waitForCompletion(b));
+                j.assertLogContains("proceeding with default values", b);
+                j.assertLogContains("got vanilla", b);
+                assertEquals(0, InputTimeouts.get().size());
+        });
+    }
+
     private static void proceed(WorkflowRun b, JenkinsRule j) throws Exception {
         InputAction a = b.getAction(InputAction.class);
         assertNotNull(a);
@@ -28,30 +28,40 @@ import com.cloudbees.plugins.credentials.CredentialsParameterDefinition;
 import com.cloudbees.plugins.credentials.CredentialsParameterValue;
 import com.cloudbees.plugins.credentials.CredentialsProvider;
 import com.cloudbees.plugins.credentials.CredentialsScope;
+import com.cloudbees.plugins.credentials.builds.CredentialsParameterBinder;
 import com.cloudbees.plugins.credentials.domains.Domain;
 import org.htmlunit.ElementNotFoundException;
 import org.htmlunit.HttpMethod;
 import org.htmlunit.WebRequest;
+import org.htmlunit.WebResponse;
 import org.htmlunit.html.HtmlAnchor;
 import org.htmlunit.html.HtmlElement;
 import org.htmlunit.html.HtmlElementUtil;
 import org.htmlunit.html.HtmlFileInput;
 import org.htmlunit.html.HtmlForm;
+import org.htmlunit.html.HtmlInput;
 import org.htmlunit.html.HtmlPage;
+import org.htmlunit.html.HtmlSelect;
 import com.google.common.base.Predicate;
 import hudson.model.BooleanParameterDefinition;
+import hudson.XmlFile;
 import hudson.model.Cause;
 import hudson.model.CauseAction;
+import hudson.model.Failure;
+import hudson.model.Item;
 import hudson.model.Job;
 import hudson.model.ParametersAction;
 import hudson.model.ParametersDefinitionProperty;
 import hudson.model.Result;
+import hudson.model.Saveable;
 import hudson.model.User;
+import hudson.model.listeners.SaveableListener;
 import hudson.model.queue.QueueTaskFuture;
 
 
 import java.io.File;
 import java.io.IOException;
+import java.net.URL;
 
 import hudson.security.ACL;
 import hudson.security.ACLContext;
@@ -78,24 +88,36 @@ import org.jvnet.hudson.test.Issue;
 import org.jvnet.hudson.test.JenkinsMatchers;
 import org.jvnet.hudson.test.JenkinsRule;
 
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.jvnet.hudson.test.MockAuthorizationStrategy;
+import org.jvnet.hudson.test.TestExtension;
 import org.jvnet.hudson.test.WithoutJenkins;
 import edu.umd.cs.findbugs.annotations.Nullable;
 import org.jvnet.hudson.test.recipes.LocalData;
 
+import static org.awaitility.Awaitility.await;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.allOf;
 import static org.hamcrest.Matchers.arrayContaining;
 import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
 import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.notNullValue;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThrows;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 
 /**
  * @author Kohsuke Kawaguchi
@@ -402,6 +424,203 @@ public class InputStepTest {
         }
     }
 
+    @Test
+    public void readersDoNotWaitForSave() throws Exception {
+        WorkflowJob p = j.createProject(WorkflowJob.class, "p");
+        p.setDefinition(new CpsFlowDefinition("parallel a: {input message: 'A?', id: 'A'}, b: {input message: 'B?', id: 'B'}", true));
+        WorkflowRun b = p.scheduleBuild2(0).waitForStart();
+        InputAction a = await().until(() -> b.getAction(InputAction.class), notNullValue());
+        await().until(() -> a.getExecutions().size() == 2);
+        InputStepExecution first = a.getExecution("A");
+        ExecutorService settler = Executors.newSingleThreadExecutor();
+        try {
+            Future<?> settled;
+            synchronized (b) { // Run.save is synchronized, so this stalls the settlement while it is saving
+                settled = settler.submit(() -> first.proceed((Map<String, Object>) null));
+                await().until(first::isSettled);
+                assertTrue(a.isWaitingForInput());
+                assertNotNull(a.getExecution("B"));
+                assertThat(a.getExecutions().size(), lessThanOrEqualTo(2));
+                assertNotNull(a.getExecutionsIfRestored());
+            }
+            settled.get();
+        } finally {
+            settler.shutdown();
+        }
+        assertEquals(1, a.getExecutions().size());
+        a.getExecution("B").proceed((Map<String, Object>) null);
+        j.assertBuildStatusSuccess(j.waitForCompletion(b));
+    }
+
+    @Test
+    public void settlementSavesOnce() throws Exception {
+        j.jenkins.setSecurityRealm(j.createDummySecurityRealm());
+        WorkflowJob p = j.createProject(WorkflowJob.class, "p");
+        p.setDefinition(new CpsFlowDefinition("input message: 'OK?', id: 'A', parameters: [booleanParam(name: 'flag', defaultValue: true)]", true));
+
+        WorkflowRun b1 = p.scheduleBuild2(0).waitForStart();
+        InputAction a1 = await().until(() -> b1.getAction(InputAction.class), notNullValue());
+        InputStepExecution e1 = await().until(() -> a1.getExecution("A"), notNullValue());
+        try (ACLContext ignored = ACL.as(User.getById("alice", true))) {
+            RunSaves.watch(b1);
+            e1.proceed(Map.of("flag", true));
+            assertEquals(1, RunSaves.stop());
+        }
+        j.assertBuildStatusSuccess(j.waitForCompletion(b1));
+        assertNotNull(b1.getAction(ApproverAction.class));
+
+        WorkflowRun b2 = p.scheduleBuild2(0).waitForStart();
+        InputAction a2 = await().until(() -> b2.getAction(InputAction.class), notNullValue());
+        InputStepExecution e2 = await().until(() -> a2.getExecution("A"), notNullValue());
+        RunSaves.watch(b2);
+        e2.doAbort();
+        assertEquals(1, RunSaves.stop());
+        j.assertBuildStatus(Result.ABORTED, j.waitForCompletion(b2));
+    }
+
+    @Test
+    public void group() throws Exception {
+        j.jenkins.setSecurityRealm(j.createDummySecurityRealm());
+        j.jenkins.setAuthorizationStrategy(new MockAuthorizationStrategy().grant(Jenkins.READ, Item.READ, Job.BUILD).everywhere().to("alice", "bob"));
+        WorkflowJob p = j.createProject(WorkflowJob.class, "p");
+        p.setDefinition(new CpsFlowDefinition(
+                "def regions = [:]\n" +
+                "for (int i = 0; i < 5; i++) {\n" +
+                "  def r = \"r$i\"\n" +
+                "  regions[r] = {input id: r, message: 'deploy?', group: 'regions', submitter: r == 'r4' ? 'alice' : null; echo(/$r deployed/)}\n" +
+                "}\n" +
+                "parallel regions", true));
+        WorkflowRun b = p.scheduleBuild2(0).waitForStart();
+        InputAction a = await().until(() -> b.getAction(InputAction.class), notNullValue());
+        await().until(() -> a.getExecutions().size(), is(5));
+
+        // bob may not settle r4, so nothing is settled
+        try (ACLContext ignored = ACL.as(User.getById("bob", true))) {
+            assertThrows(Failure.class, () -> a.getExecution("r0").doProceedEmpty());
+        }
+        assertEquals(5, a.getExecutions().size());
+
+        try (ACLContext ignored = ACL.as(User.getById("alice", true))) {
+            RunSaves.watch(b);
+            a.getExecution("r2").doProceedEmpty();
+            assertEquals(1, RunSaves.stop());
+        }
+        j.assertBuildStatusSuccess(j.waitForCompletion(b));
+        for (int i = 0; i < 5; i++) {
+            j.assertLogContains("r" + i + " deployed", b);
+        }
+    }
+
+    @Test
+    public void proceedJson() throws Exception {
+        WorkflowJob p = j.createProject(WorkflowJob.class, "p");
+        p.setDefinition(new CpsFlowDefinition(
+                "def r = input id: 'Release', message: 'release?', parameters: [choice(name: 'version', choices: ['1.0', '1.1']), " +
+                "booleanParam(name: 'dryRun', defaultValue: true), string(name: 'note', defaultValue: 'none')]\n" +
+                "echo(/version=${r.version} dryRun=${r.dryRun} note=${r.note}/)", true));
+        WorkflowRun b = p.scheduleBuild2(0).waitForStart();
+        j.waitForMessage("release?", b);
+        JenkinsRule.WebClient wc = j.createWebClient();
+
+        JSONObject response = proceedJson(wc, "{\"version\": \"2.0\", \"bogus\": 1, \"note\": [\"x\"]}");
+        assertEquals("error", response.getString("status"));
+        assertEquals(Map.of("note", "Expected a string, number or boolean", "version", "Illegal choice for parameter version: 2.0", "bogus", "No such parameter"),
+                response.getJSONObject("data"));
+        assertEquals("error", proceedJson(wc, "{\"version\": ").getString("status"));
+        assertTrue(b.getAction(InputAction.class).isWaitingForInput());
+
+        assertEquals("ok", proceedJson(wc, "{\"version\": \"1.1\", \"dryRun\": false}").getString("status"));
+        j.assertBuildStatusSuccess(j.waitForCompletion(b));
+        j.assertLogContains("version=1.1 dryRun=false note=none", b);
+    }
+
+    @Test
+    public void groupBindsCredentialsOnlyOnceApproved() throws Exception {
+        WorkflowJob p = j.createProject(WorkflowJob.class, "p");
+        p.setDefinition(new CpsFlowDefinition(
+                "parallel a: {input id: 'Release', message: 'release?', group: 'g', parameters: [credentials(credentialType: 'org.jenkinsci.plugins.plaincredentials.impl.StringCredentialsImpl', name: 'creds', required: false)]},\n" +
+                "  b: {input id: 'Other', message: 'other?', group: 'g', parameters: [choice(name: 'creds', choices: ['x'])]}", true));
+        WorkflowRun b = p.scheduleBuild2(0).waitForStart();
+        InputAction a = await().until(() -> b.getAction(InputAction.class), notNullValue());
+        await().until(() -> a.getExecutions().size(), is(2));
+        JenkinsRule.WebClient wc = j.createWebClient();
+
+        // valid for Release but not for Other: neither is approved, so nothing may be bound
+        assertEquals("error", proceedJson(wc, "{\"creds\": \"someId\"}").getString("status"));
+        assertNull(b.getAction(CredentialsParameterBinder.class));
+        assertEquals(2, a.getExecutions().size());
+
+        assertEquals("ok", proceedJson(wc, "{\"creds\": \"x\"}").getString("status"));
+        j.assertBuildStatusSuccess(j.waitForCompletion(b));
+        assertNotNull(b.getAction(CredentialsParameterBinder.class));
+    }
+
+    @Test
+    public void lazyChoices() throws Exception {
+        WorkflowJob p = j.createProject(WorkflowJob.class, "p");
+        p.setDefinition(new CpsFlowDefinition(
+                "echo(/got ${input id: 'Pick', message: 'pick?', parameters: [choice(name: 'flavor', choices: (1..1000).collect { 'v' + it }.join('\\n'))]}/)", true));
+        WorkflowRun b = p.scheduleBuild2(0).waitForStart();
+        j.waitForMessage("pick?", b);
+        JenkinsRule.WebClient wc = j.createWebClient();
+        HtmlPage page = wc.getPage(b, "input");
+        assertThat(page.getWebResponse().getContentAsString(), allOf(containsString("v1"), not(containsString("v1000"))));
+
+        JSONObject choices = wc.getJSON("job/p/1/input/Pick/choices?name=flavor&q=99&start=1&limit=2").getJSONObject().getJSONObject("data");
+        assertEquals(List.of("v199", "v299"), choices.getJSONArray("choices"));
+        assertEquals(19, choices.getInt("total"));
+        assertEquals(50, wc.getJSON("job/p/1/input/Pick/choices?name=flavor").getJSONObject().getJSONObject("data").getJSONArray("choices").size());
+
+        // the dialog may be embedded in any page, so it must not fetch choices relative to its own
+        String choicesUrl = j.contextPath + "/job/p/1/input/Pick/choices";
+        assertThat(wc.goTo("job/p/1/input/Pick/dialog").getWebResponse().getContentAsString(), containsString("data-url=\"" + choicesUrl + "\""));
+
+        HtmlForm form = page.getFormByName("Pick");
+        HtmlSelect select = form.getSelectByName("value");
+        assertEquals("v1", select.getSelectedOptions().get(0).getValueAttribute());
+        form.<HtmlInput>getFirstByXPath(".//input[@type='search']").type("99");
+        await().until(() -> select.getOptionSize(), is(19));
+        select.getOptionByValue("v999").setSelected(true);
+        j.submit(form, "proceed");
+        j.assertBuildStatusSuccess(j.waitForCompletion(b));
+        j.assertLogContains("got v999", b);
+    }
+
+    private static JSONObject proceedJson(JenkinsRule.WebClient wc, String body) throws Exception {
+        WebRequest req = new WebRequest(wc.createCrumbedUrl("job/p/1/input/Release/proceedJson"), HttpMethod.POST);
+        req.setAdditionalHeader("Content-Type", "application/json");
+        req.setRequestBody(body);
+        return JSONObject.fromObject(wc.getPage(req).getWebResponse().getContentAsString());
+    }
+
+    /**
+     * Counts saves of one build made by the current thread, leaving out those made once the program resumes.
+     */
+    @TestExtension
+    public static class RunSaves extends SaveableListener {
+        private static volatile Saveable watched;
+        private static volatile Thread watcher;
+        private static final AtomicInteger count = new AtomicInteger();
+
+        static void watch(Saveable run) {
+            count.set(0);
+            watcher = Thread.currentThread();
+            watched = run;
+        }
+
+        static int stop() {
+            watched = null;
+            return count.get();
+        }
+
+        @Override
+        public void onChange(Saveable o, XmlFile file) {
+            if (o == watched && Thread.currentThread() == watcher) {
+                count.incrementAndGet();
+            }
+        }
+    }
+
     @Test
     public void abortPreviousBuilds() throws Exception {
         //Create a new job and set the AbortPreviousBuildsJobProperty
@@ -639,6 +858,47 @@ public class InputStepTest {
         assertThat("> should be rejected", d.doCheckId("this-is-also>-not-ok"), JenkinsMatchers.hasKind(Kind.ERROR));
     }
 
+    @Test
+    public void conditionalGet() throws Exception {
+        WorkflowJob p = j.jenkins.createProject(WorkflowJob.class, "p");
+        p.setDefinition(new CpsFlowDefinition("input id: 'First', message: 'first'; input id: 'Second', message: 'second'", true));
+        WorkflowRun b = p.scheduleBuild2(0).waitForStart();
+        j.waitForMessage("first", b);
+        JenkinsRule.WebClient wc = j.createWebClient();
+        for (String path : new String[] {"input/", "input/api/json"}) {
+            WebResponse rsp = wc.loadWebResponse(new WebRequest(new URL(j.getURL(), b.getUrl() + path)));
+            assertEquals(200, rsp.getStatusCode());
+            String etag = rsp.getResponseHeaderValue("ETag");
+            assertNotNull(etag);
+            WebRequest conditional = new WebRequest(new URL(j.getURL(), b.getUrl() + path));
+            conditional.setAdditionalHeader("If-None-Match", etag);
+            assertEquals(304, wc.loadWebResponse(conditional).getStatusCode());
+        }
+        WebResponse before = wc.loadWebResponse(new WebRequest(new URL(j.getURL(), b.getUrl() + "input/api/json")));
+        b.getAction(InputAction.class).getExecution("First").proceed((Map<String, Object>) null);
+        j.waitForMessage("second", b);
+        WebRequest conditional = new WebRequest(new URL(j.getURL(), b.getUrl() + "input/api/json"));
+        conditional.setAdditionalHeader("If-None-Match", before.getResponseHeaderValue("ETag"));
+        WebResponse after = wc.loadWebResponse(conditional);
+        assertEquals(200, after.getStatusCode());
+        assertThat(after.getContentAsString(), containsString("second"));
+        String etag = after.getResponseHeaderValue("ETag");
+        WebRequest deeper = new WebRequest(new URL(j.getURL(), b.getUrl() + "input/api/json?depth=1"));
+        deeper.setAdditionalHeader("If-None-Match", etag);
+        assertEquals(200, wc.loadWebResponse(deeper).getStatusCode());
+        // decided but not yet removed: the API shows it settled
+        InputAction action = b.getAction(InputAction.class);
+        Map<InputStepExecution, InputSubmittedAction> decided = action.getExecution("Second").decide(true, null, null);
+        conditional = new WebRequest(new URL(j.getURL(), b.getUrl() + "input/api/json"));
+        conditional.setAdditionalHeader("If-None-Match", etag);
+        assertEquals(200, wc.loadWebResponse(conditional).getStatusCode());
+        action.removeAll(decided.keySet());
+        for (Map.Entry<InputStepExecution, InputSubmittedAction> entry : decided.entrySet()) {
+            entry.getKey().completeSettlement(entry.getValue());
+        }
+        j.assertBuildStatusSuccess(j.waitForCompletion(b));
+    }
+
     @Test
     public void test_api_contains_waitingForInput() throws Exception {
         //set up dummy security real
@@ -730,4 +990,34 @@ public class InputStepTest {
         j.submit(p.getFormByName(is.getId()), "proceed");
         j.assertBuildStatusSuccess(j.waitForCompletion(b));
     }
+
+    @Test
+    public void timeout() throws Exception {
+        WorkflowJob p = j.createProject(WorkflowJob.class, "p");
+        p.setDefinition(new CpsFlowDefinition("input message: 'ok?', timeout: 1, timeoutUnit: 'SECONDS'", true));
+        WorkflowRun b = j.assertBuildStatus(Result.ABORTED, p.scheduleBuild2(0));
+        j.assertLogContains("Timed out after 1 seconds; aborting", b);
+        assertEquals(0, InputTimeouts.get().size());
+        assertFalse(b.getAction(InputAction.class).isWaitingForInput());
+
+        p.setDefinition(new CpsFlowDefinition("echo(/got ${input message: 'Which flavor?', timeout: 1, timeoutUnit: 'SECONDS', timeoutAction: 'PROCEED', parameters: [string(name: 'flavor', defaultValue: 'vanilla')]}/)", true));
+        b = j.buildAndAssertSuccess(p);
+        j.assertLogContains("Timed out after 1 seconds; proceeding with default values", b);
+        j.assertLogContains("got vanilla", b);
+
+        // settled before the deadline: nothing left to time out
+        p.setDefinition(new CpsFlowDefinition("input message: 'ok?', timeout: 1, timeoutUnit: 'HOURS'", true));
+        b = p.scheduleBuild2(0).waitForStart();
+        j.waitForMessage("ok?", b);
+        assertEquals(1, InputTimeouts.get().size());
+        assertEquals(b.getStartTimeInMillis(), PendingInputRegistry.get().list(0, 1).get(0).getDeadline() - 3_600_000, 60_000);
+        InputStepExecution exec = b.getAction(InputAction.class).getExecutions().get(0);
+        exec.doProceedEmpty();
+        j.assertBuildStatusSuccess(j.waitForCompletion(b));
+        assertEquals(0, InputTimeouts.get().size());
+        // a timeout firing late, as when it raced the approval, does nothing
+        exec.timeOut();
+        j.assertLogNotContains("Timed out", b);
+        assertThrows(Failure.class, exec::doProceedEmpty);
+    }
 }
@@ -0,0 +1,43 @@
+package org.jenkinsci.plugins.workflow.support.steps.input;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.junit.Test;
+
+public class ParameterValuesReaderTest {
+
+    private static Map<String, String> read(String json, Map<String, String> errors) throws IOException {
+        return ParameterValuesReader.read(new StringReader(json), errors);
+    }
+
+    @Test public void scalars() throws Exception {
+        Map<String, String> errors = new HashMap<>();
+        Map<String, String> expected = new LinkedHashMap<>();
+        expected.put("version", "1.é2\n");
+        expected.put("dryRun", "true");
+        expected.put("count", "-1.5e3");
+        expected.put("skipped", null);
+        assertEquals(expected, read(" {\"version\": \"1.\\u00e92\\n\", \"dryRun\" : true, \"count\": -1.5e3, \"skipped\": null}\n", errors));
+        assertEquals(Map.of(), errors);
+        assertEquals(Map.of(), read("{}", errors));
+    }
+
+    @Test public void fieldErrors() throws Exception {
+        Map<String, String> errors = new HashMap<>();
+        assertEquals(Map.of("ok", "yes"), read("{\"nested\": [1, {\"b\": \"]\"}], \"twice\": \"a\", \"ok\": \"yes\", \"twice\": \"b\"}", errors));
+        assertEquals(Map.of("nested", "Expected a string, number or boolean", "twice", "Given more than once"), errors);
+    }
+
+    @Test public void malformed() {
+        assertThrows(IllegalArgumentException.class, () -> read("[1]", new HashMap<>()));
+        assertThrows(IllegalArgumentException.class, () -> read("{\"a\": tru}", new HashMap<>()));
+        assertThrows(IllegalArgumentException.class, () -> read("{\"a\": 1} x", new HashMap<>()));
+        assertThrows(IllegalArgumentException.class, () -> read("{\"a\": \"unterminated", new HashMap<>()));
+    }
+}
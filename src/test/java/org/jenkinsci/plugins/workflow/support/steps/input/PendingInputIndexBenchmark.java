@@ -0,0 +1,54 @@
+package org.jenkinsci.plugins.workflow.support.steps.input;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Lookup and add/remove cost of {@link PendingInputIndex} as the number of pending inputs grows.
+ * Scores should stay flat across {@link #pending}.
+ * Run with {@code mvn test -Dtest=BenchmarkRunner}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class PendingInputIndexBenchmark {
+
+    @Param({"10", "100", "1000", "10000"})
+    public int pending;
+
+    private PendingInputIndex index;
+    private String middleId;
+    private InputStepExecution extra;
+
+    @Setup
+    public void setUp() {
+        index = new PendingInputIndex();
+        for (int i = 0; i < pending; i++) {
+            index.add(execution("branch " + i));
+        }
+        middleId = execution("branch " + pending / 2).getId();
+        extra = execution("extra");
+    }
+
+    @Benchmark
+    public InputStepExecution lookup() {
+        return index.get(middleId);
+    }
+
+    @Benchmark
+    public boolean addRemove() {
+        index.add(extra);
+        return index.remove(extra);
+    }
+
+    static InputStepExecution execution(String message) {
+        return new InputStepExecution(new InputStep(message), null);
+    }
+}
@@ -0,0 +1,58 @@
+package org.jenkinsci.plugins.workflow.support.steps.input;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import org.junit.Test;
+
+public class PendingInputIndexTest {
+
+    @Test public void order() {
+        PendingInputIndex index = new PendingInputIndex();
+        InputStepExecution a = PendingInputIndexBenchmark.execution("a");
+        InputStepExecution b = PendingInputIndexBenchmark.execution("b");
+        InputStepExecution c = PendingInputIndexBenchmark.execution("c");
+        index.add(a);
+        index.add(b);
+        index.add(c);
+        assertEquals(List.of(a, b, c), index.list());
+        assertEquals(List.of(a.getId(), b.getId(), c.getId()), index.ids());
+        assertSame(b, index.get(b.getId()));
+        assertTrue(index.remove(b));
+        assertFalse(index.remove(b));
+        assertNull(index.get(b.getId()));
+        assertEquals(List.of(a, c), index.list());
+        assertEquals(List.of(a.getId(), c.getId()), index.ids());
+    }
+
+    @Test public void duplicateIds() {
+        PendingInputIndex index = new PendingInputIndex();
+        InputStepExecution first = PendingInputIndexBenchmark.execution("same");
+        InputStepExecution second = PendingInputIndexBenchmark.execution("same");
+        index.add(first);
+        index.add(second);
+        assertEquals(List.of(first.getId()), index.ids());
+        assertSame(first, index.get(first.getId()));
+        assertTrue(index.remove(first));
+        assertSame(second, index.get(first.getId()));
+        assertEquals(List.of(first.getId()), index.ids());
+        assertTrue(index.remove(second));
+        assertTrue(index.isEmpty());
+    }
+
+    @Test public void unrestoredIds() {
+        InputStepExecution restored = PendingInputIndexBenchmark.execution("restored");
+        InputStepExecution lost = PendingInputIndexBenchmark.execution("lost");
+        PendingInputIndex index = new PendingInputIndex(List.of(lost.getId(), restored.getId()));
+        index.add(restored);
+        assertEquals(1, index.size());
+        assertEquals(List.of(restored), index.list());
+        assertEquals(List.of(lost.getId(), restored.getId()), index.ids());
+        assertFalse(index.remove(lost));
+        assertEquals(List.of(restored.getId()), index.ids());
+    }
+}
@@ -0,0 +1,184 @@
+package org.jenkinsci.plugins.workflow.support.steps.input;
+
+import static org.awaitility.Awaitility.await;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import hudson.model.Item;
+import hudson.model.Job;
+import hudson.model.Result;
+import hudson.model.User;
+import hudson.security.ACL;
+import hudson.security.ACLContext;
+import java.util.List;
+import java.util.Map;
+import jenkins.model.Jenkins;
+import net.sf.json.JSONArray;
+import net.sf.json.JSONObject;
+import org.htmlunit.HttpMethod;
+import org.htmlunit.WebRequest;
+import org.jenkinsci.plugins.workflow.cps.CpsFlowDefinition;
+import org.jenkinsci.plugins.workflow.job.WorkflowJob;
+import org.jenkinsci.plugins.workflow.job.WorkflowRun;
+import org.junit.ClassRule;
+import org.junit.Rule;
+import org.junit.Test;
+import org.jvnet.hudson.test.BuildWatcher;
+import org.jvnet.hudson.test.JenkinsRule;
+import org.jvnet.hudson.test.MockAuthorizationStrategy;
+
+public class PendingInputRegistryTest {
+
+    @ClassRule public static BuildWatcher buildWatcher = new BuildWatcher();
+    @Rule public JenkinsRule j = new JenkinsRule();
+
+    @Test public void listing() throws Exception {
+        j.jenkins.setSecurityRealm(j.createDummySecurityRealm());
+        j.jenkins.setAuthorizationStrategy(new MockAuthorizationStrategy().
+            grant(Jenkins.ADMINISTER).everywhere().to("admin").
+            grant(Jenkins.READ).everywhere().to("alice").
+            grant(Item.READ).onItems(j.createProject(WorkflowJob.class, "a")).to("alice"));
+        WorkflowJob a = j.jenkins.getItemByFullName("a", WorkflowJob.class);
+        a.setDefinition(new CpsFlowDefinition("input id: 'First', message: 'first'; input id: 'Second', message: 'second', submitter: 'bob'", true));
+        WorkflowJob b = j.createProject(WorkflowJob.class, "b");
+        b.setDefinition(new CpsFlowDefinition("input 'hidden'", true));
+        WorkflowRun a1 = a.scheduleBuild2(0).waitForStart();
+        j.waitForMessage("first", a1);
+        WorkflowRun a2 = a.scheduleBuild2(0).waitForStart();
+        j.waitForMessage("first", a2);
+        WorkflowRun b1 = b.scheduleBuild2(0).waitForStart();
+        j.waitForMessage("hidden", b1);
+
+        JenkinsRule.WebClient wc = j.createWebClient();
+        JSONArray inputs = wc.login("admin").getJSON("pendingInputs/api/json").getJSONObject().getJSONArray("inputs");
+        assertEquals(3, inputs.size());
+        JSONObject first = inputs.getJSONObject(0);
+        assertEquals("a", first.getString("job"));
+        assertEquals(1, first.getInt("build"));
+        assertEquals("First", first.getString("id"));
+        assertEquals("first", first.getString("message"));
+        assertEquals(a1.getUrl() + "input/First/", first.getString("url"));
+        assertTrue(first.getLong("since") > 0);
+        assertEquals("b", inputs.getJSONObject(2).getString("job"));
+
+        wc = j.createWebClient().login("alice");
+        inputs = wc.getJSON("pendingInputs/api/json").getJSONObject().getJSONArray("inputs");
+        assertEquals(2, inputs.size());
+        inputs = wc.getJSON("pendingInputs/api/json?start=1&limit=5").getJSONObject().getJSONArray("inputs");
+        assertEquals(1, inputs.size());
+        assertEquals(2, inputs.getJSONObject(0).getInt("build"));
+
+        a1.getAction(InputAction.class).getExecution("First").proceed((Map<String, Object>) null);
+        await().until(() -> PendingInputRegistry.get().get(a1.getExternalizableId(), "Second") != null);
+        try (ACLContext context = ACL.as2(ACL.SYSTEM2)) {
+            List<PendingInput> listed = PendingInputRegistry.get().list(0, 10);
+            assertEquals(3, listed.size());
+        }
+        assertEquals("bob", PendingInputRegistry.get().get(a1.getExternalizableId(), "Second").getSubmitter());
+        assertNull(PendingInputRegistry.get().get(a1.getExternalizableId(), "First"));
+
+        a1.doStop();
+        j.waitForCompletion(a1);
+        await().until(() -> PendingInputRegistry.get().get(a1.getExternalizableId(), "Second") == null);
+    }
+
+    @Test public void approvable() throws Exception {
+        JenkinsRule.DummySecurityRealm realm = j.createDummySecurityRealm();
+        realm.addGroups("carol", "Approvers");
+        j.jenkins.setSecurityRealm(realm);
+        WorkflowJob p = j.createProject(WorkflowJob.class, "p");
+        j.jenkins.setAuthorizationStrategy(new MockAuthorizationStrategy().
+            grant(Jenkins.READ, Item.READ).everywhere().toEveryone().
+            grant(Job.BUILD).onItems(p).to("dave"));
+        p.setDefinition(new CpsFlowDefinition(
+            "parallel a: {input id: 'A', message: 'a', submitter: 'Bob'}, " +
+            "b: {input id: 'B', message: 'b', submitter: 'approvers,eve'}, " +
+            "c: {input id: 'C', message: 'c'}", true));
+        WorkflowRun b = p.scheduleBuild2(0).waitForStart();
+        await().until(() -> PendingInputRegistry.get().get(b.getExternalizableId(), "C") != null);
+        await().until(() -> PendingInputRegistry.get().get(b.getExternalizableId(), "B") != null);
+        await().until(() -> PendingInputRegistry.get().get(b.getExternalizableId(), "A") != null);
+        assertEquals(List.of("A"), approvable("bob"));
+        assertEquals(List.of("B"), approvable("carol"));
+        assertEquals(List.of("B"), approvable("EVE"));
+        assertEquals(List.of("C"), approvable("dave"));
+        assertEquals(List.of(), approvable("frank"));
+        JSONArray inputs = j.createWebClient().login("bob").getJSON("pendingInputs/approvable/api/json").getJSONObject().getJSONArray("inputs");
+        assertEquals(1, inputs.size());
+        assertEquals("A", inputs.getJSONObject(0).getString("id"));
+        b.getAction(InputAction.class).getExecution("A").proceed((Map<String, Object>) null);
+        await().until(() -> approvable("bob").isEmpty());
+    }
+
+    @Test public void settle() throws Exception {
+        j.jenkins.setSecurityRealm(j.createDummySecurityRealm());
+        WorkflowJob p = j.createProject(WorkflowJob.class, "p");
+        j.jenkins.setAuthorizationStrategy(new MockAuthorizationStrategy().
+            grant(Jenkins.READ, Item.READ).everywhere().toEveryone().
+            grant(Job.BUILD).onItems(p).to("alice"));
+        p.setDefinition(new CpsFlowDefinition(
+            "parallel a: {echo(/a=${input id: 'A', message: 'a', parameters: [string(name: 'x')]}/)}, " +
+            "b: {input id: 'B', message: 'b'}, " +
+            "c: {input id: 'C', message: 'c', submitter: 'bob'}", true));
+        WorkflowRun b1 = p.scheduleBuild2(0).waitForStart();
+        WorkflowRun b2 = p.scheduleBuild2(0).waitForStart();
+        for (WorkflowRun b : List.of(b1, b2)) {
+            await().until(() -> PendingInputRegistry.get().get(b.getExternalizableId(), "C") != null);
+            await().until(() -> PendingInputRegistry.get().get(b.getExternalizableId(), "B") != null);
+            await().until(() -> PendingInputRegistry.get().get(b.getExternalizableId(), "A") != null);
+        }
+        JSONArray items = new JSONArray();
+        items.add(item(b1, "A", "proceed").element("parameter", new JSONArray().element(new JSONObject().element("name", "x").element("value", "hello"))));
+        items.add(item(b1, "B", "proceed"));
+        items.add(item(b1, "C", "proceed")); // not bob
+        items.add(item(b2, "B", "abort"));
+        items.add(item(b2, "D", "proceed")); // no such input
+        items.add(item(b1, "B", "abort")); // already approved
+        JenkinsRule.WebClient wc = j.createWebClient().login("alice");
+        WebRequest req = new WebRequest(wc.createCrumbedUrl("pendingInputs/settle"), HttpMethod.POST);
+        req.setAdditionalHeader("Content-Type", "application/json");
+        req.setRequestBody(new JSONObject().element("inputs", items).toString());
+        JSONArray results = JSONObject.fromObject(wc.getPage(req).getWebResponse().getContentAsString()).getJSONArray("data");
+        assertEquals(List.of("ok", "ok", "error", "ok", "error", "error"), results.stream().map(r -> ((JSONObject) r).getString("result")).toList());
+        assertEquals("You need to be bob to submit this.", results.getJSONObject(2).getString("message"));
+        j.waitForMessage("a=hello", b1);
+        assertEquals(List.of("C"), b1.getAction(InputAction.class).getExecutions().stream().map(InputStepExecution::getId).toList());
+        assertEquals(List.of("A", "C"), b2.getAction(InputAction.class).getExecutions().stream().map(InputStepExecution::getId).sorted().toList());
+        b2.doStop();
+        j.assertBuildStatus(Result.ABORTED, j.waitForCompletion(b2));
+    }
+
+    @Test public void settleMalformed() throws Exception {
+        WorkflowJob p = j.createProject(WorkflowJob.class, "p");
+        p.setDefinition(new CpsFlowDefinition(
+            "parallel a: {input id: 'A', message: 'a'}, " +
+            "b: {input id: 'B', message: 'b'}", true));
+        WorkflowRun b = p.scheduleBuild2(0).waitForStart();
+        await().until(() -> PendingInputRegistry.get().get(b.getExternalizableId(), "A") != null);
+        await().until(() -> PendingInputRegistry.get().get(b.getExternalizableId(), "B") != null);
+        JSONArray items = new JSONArray();
+        items.add(item(b, "A", "proceed"));
+        items.add(42); // not an object
+        items.add(item(b, "B", "proceed").element("parameter", new JSONArray().element("x"))); // not a parameter object
+        items.add(item(b, "B", "proceed").element("parameter", new JSONArray().element(new JSONObject().element("value", "y")))); // no name
+        JenkinsRule.WebClient wc = j.createWebClient();
+        WebRequest req = new WebRequest(wc.createCrumbedUrl("pendingInputs/settle"), HttpMethod.POST);
+        req.setAdditionalHeader("Content-Type", "application/json");
+        req.setRequestBody(new JSONObject().element("inputs", items).toString());
+        JSONArray results = JSONObject.fromObject(wc.getPage(req).getWebResponse().getContentAsString()).getJSONArray("data");
+        assertEquals(List.of("ok", "error", "error", "error"), results.stream().map(r -> ((JSONObject) r).getString("result")).toList());
+        // A was completed despite the items after it, and B is still pending
+        await().until(() -> b.getAction(InputAction.class).getExecutions().stream().map(InputStepExecution::getId).toList().equals(List.of("B")));
+        b.getAction(InputAction.class).getExecution("B").doProceedEmpty();
+        j.assertBuildStatusSuccess(j.waitForCompletion(b));
+    }
+
+    private static JSONObject item(WorkflowRun run, String id, String action) {
+        return new JSONObject().element("run", run.getExternalizableId()).element("id", id).element("action", action);
+    }
+
+    private static List<String> approvable(String user) {
+        return PendingInputRegistry.get().listApprovable(User.getById(user, true).impersonate2(), 0, 10).stream().map(PendingInput::getId).sorted().toList();
+    }
+}
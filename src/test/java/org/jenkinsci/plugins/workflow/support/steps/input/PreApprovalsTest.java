@@ -0,0 +1,99 @@
+package org.jenkinsci.plugins.workflow.support.steps.input;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import hudson.model.Item;
+import hudson.model.Job;
+import java.util.List;
+import jenkins.model.Jenkins;
+import net.sf.json.JSONObject;
+import org.htmlunit.HttpMethod;
+import org.htmlunit.WebRequest;
+import org.jenkinsci.plugins.workflow.cps.CpsFlowDefinition;
+import org.jenkinsci.plugins.workflow.job.WorkflowJob;
+import org.jenkinsci.plugins.workflow.job.WorkflowRun;
+import org.junit.ClassRule;
+import org.junit.Rule;
+import org.junit.Test;
+import org.jvnet.hudson.test.BuildWatcher;
+import org.jvnet.hudson.test.JenkinsRule;
+import org.jvnet.hudson.test.MockAuthorizationStrategy;
+
+public class PreApprovalsTest {
+
+    @ClassRule public static BuildWatcher buildWatcher = new BuildWatcher();
+    @Rule public JenkinsRule j = new JenkinsRule();
+
+    @Test public void skipsPause() throws Exception {
+        j.jenkins.setSecurityRealm(j.createDummySecurityRealm());
+        WorkflowJob p = j.createProject(WorkflowJob.class, "p");
+        j.jenkins.setAuthorizationStrategy(new MockAuthorizationStrategy().
+            grant(Jenkins.READ, Item.READ).everywhere().toEveryone().
+            grant(Job.BUILD).onItems(p).to("alice", "bob"));
+        p.setDefinition(new CpsFlowDefinition(
+            "def r = input id: 'Deploy', message: 'deploy?', submitter: 'alice', submitterParameter: 'who', " +
+            "parameters: [string(name: 'env', defaultValue: 'staging'), string(name: 'region', defaultValue: 'eu')]\n" +
+            "echo(/env=${r.env} region=${r.region} who=${r.who}/)", true));
+
+        String bobs = create("bob", new JSONObject().element("job", "p").element("id", "Deploy"));
+        String alices = create("alice", new JSONObject().element("job", "p").element("id", "Deploy").element("from", 2).
+            element("parameters", new JSONObject().element("env", "production")));
+        assertEquals(2, PreApprovals.get().getPreApprovals().size());
+
+        // build 1 is out of range for alice, and bob is not a submitter
+        WorkflowRun b1 = p.scheduleBuild2(0).waitForStart();
+        j.waitForMessage("Ignoring pre-approval " + bobs + " as bob may not approve this input", b1);
+        j.waitForMessage("deploy?", b1);
+        b1.doStop();
+        j.waitForCompletion(b1);
+
+        WorkflowRun b2 = j.buildAndAssertSuccess(p);
+        j.assertLogContains("Using pre-approval " + alices, b2);
+        j.assertLogContains("env=production region=eu who=alice", b2);
+        assertEquals("alice", b2.getAction(ApproverAction.class).getUserId());
+        assertNull(b2.getAction(InputAction.class));
+        assertEquals(List.of(bobs), PreApprovals.get().getPreApprovals().stream().map(PreApproval::getToken).toList());
+
+        // used up
+        WorkflowRun b3 = p.scheduleBuild2(0).waitForStart();
+        j.waitForMessage("deploy?", b3);
+        revoke("bob", bobs);
+        assertEquals(List.of(), PreApprovals.get().getPreApprovals());
+        b3.doStop();
+        j.waitForCompletion(b3);
+    }
+
+    @Test public void followsRenames() throws Exception {
+        WorkflowJob p = j.createProject(WorkflowJob.class, "p");
+        p.setDefinition(new CpsFlowDefinition("input id: 'Deploy', message: 'deploy?'", true));
+        create(null, new JSONObject().element("job", "p").element("id", "Deploy"));
+        assertEquals(0, PreApprovals.get().getPreApprovals().size()); // anonymous
+        j.jenkins.setSecurityRealm(j.createDummySecurityRealm());
+        create("alice", new JSONObject().element("job", "p").element("id", "Deploy"));
+        p.renameTo("q");
+        assertEquals("q", PreApprovals.get().getPreApprovals().get(0).getJob());
+        j.buildAndAssertSuccess(p);
+        assertEquals(0, PreApprovals.get().getPreApprovals().size());
+        create("alice", new JSONObject().element("job", "q").element("id", "Deploy"));
+        p.delete();
+        assertEquals(0, PreApprovals.get().getPreApprovals().size());
+    }
+
+    private String create(String user, JSONObject body) throws Exception {
+        JenkinsRule.WebClient wc = j.createWebClient().withThrowExceptionOnFailingStatusCode(false);
+        if (user != null) {
+            wc.login(user);
+        }
+        WebRequest req = new WebRequest(wc.createCrumbedUrl("pendingInputs/preApprovals/create"), HttpMethod.POST);
+        req.setAdditionalHeader("Content-Type", "application/json");
+        req.setRequestBody(body.toString());
+        JSONObject response = JSONObject.fromObject(wc.getPage(req).getWebResponse().getContentAsString());
+        return response.has("data") ? response.getJSONObject("data").getString("token") : null;
+    }
+
+    private void revoke(String user, String token) throws Exception {
+        JenkinsRule.WebClient wc = j.createWebClient().login(user);
+        wc.getPage(new WebRequest(wc.createCrumbedUrl("pendingInputs/preApprovals/revoke?token=" + token), HttpMethod.POST));
+    }
+}
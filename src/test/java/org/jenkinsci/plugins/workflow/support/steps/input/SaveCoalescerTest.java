@@ -0,0 +1,97 @@
+package org.jenkinsci.plugins.workflow.support.steps.input;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+
+import hudson.model.Saveable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Test;
+
+public class SaveCoalescerTest {
+
+    /** Records how many changes each save covered. */
+    private static final class Target implements Saveable {
+        final AtomicInteger changes = new AtomicInteger();
+        final AtomicInteger saves = new AtomicInteger();
+        volatile int persisted;
+
+        @Override public void save() throws IOException {
+            saves.incrementAndGet();
+            int seen = changes.get();
+            try {
+                Thread.sleep(10); // a slow disk
+            } catch (InterruptedException x) {
+                throw new IOException(x);
+            }
+            persisted = seen;
+        }
+    }
+
+    @Test public void coalesces() throws Exception {
+        Target target = new Target();
+        SaveCoalescer coalescer = new SaveCoalescer(target, 20);
+        int callers = 100;
+        ExecutorService pool = Executors.newFixedThreadPool(callers);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < callers; i++) {
+                futures.add(pool.submit(() -> {
+                    int change = target.changes.incrementAndGet();
+                    coalescer.save();
+                    // durable before acknowledged
+                    assertThat(target.persisted, greaterThanOrEqualTo(change));
+                    return null;
+                }));
+            }
+            for (Future<?> f : futures) {
+                f.get();
+            }
+        } finally {
+            pool.shutdown();
+        }
+        assertEquals(callers, target.persisted);
+        assertThat(target.saves.get(), lessThan(callers / 2));
+    }
+
+    @Test public void single() throws Exception {
+        Target target = new Target();
+        SaveCoalescer coalescer = new SaveCoalescer(target, 0);
+        target.changes.incrementAndGet();
+        coalescer.save();
+        assertEquals(1, target.saves.get());
+        assertEquals(1, target.persisted);
+        target.changes.incrementAndGet();
+        coalescer.save();
+        assertEquals(2, target.saves.get());
+        assertEquals(2, target.persisted);
+    }
+
+    @Test public void loneCallerDoesNotWait() throws Exception {
+        Target target = new Target();
+        SaveCoalescer coalescer = new SaveCoalescer(target, 60_000);
+        target.changes.incrementAndGet();
+        long start = System.nanoTime();
+        coalescer.save();
+        assertThat(System.nanoTime() - start, lessThan(TimeUnit.SECONDS.toNanos(30)));
+        assertEquals(1, target.persisted);
+    }
+
+    @Test public void failure() throws Exception {
+        SaveCoalescer coalescer = new SaveCoalescer(() -> {
+            throw new IOException("disk full");
+        }, 0);
+        assertThrows(IOException.class, coalescer::save);
+        // not stuck
+        assertThrows(IOException.class, coalescer::save);
+    }
+}
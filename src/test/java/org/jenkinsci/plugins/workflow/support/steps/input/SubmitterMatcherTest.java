@@ -0,0 +1,48 @@
+package org.jenkinsci.plugins.workflow.support.steps.input;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import jenkins.model.IdStrategy;
+import org.junit.Test;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+public class SubmitterMatcherTest {
+
+    @Test public void names() {
+        assertEquals(List.of("alice", "bob", "Release Managers"), List.copyOf(SubmitterMatcher.names(" alice,bob ,, Release Managers,bob")));
+        assertEquals(Set.of(), SubmitterMatcher.names(null));
+    }
+
+    @Test public void caseInsensitive() {
+        SubmitterMatcher matcher = new SubmitterMatcher("alice, Release-Managers", IdStrategy.CASE_INSENSITIVE, IdStrategy.CASE_INSENSITIVE);
+        assertTrue(matcher.matches(user("ALICE")));
+        assertTrue(matcher.matches(user("carol", "developers", "release-managers")));
+        assertFalse(matcher.matches(user("carol", "developers")));
+    }
+
+    @Test public void caseSensitive() {
+        IdStrategy sensitive = new IdStrategy.CaseSensitive();
+        SubmitterMatcher matcher = new SubmitterMatcher("alice,Ops", sensitive, sensitive);
+        assertTrue(matcher.matches(user("alice")));
+        assertFalse(matcher.matches(user("Alice")));
+        assertTrue(matcher.matches(user("bob", "Ops")));
+        assertFalse(matcher.matches(user("bob", "ops")));
+    }
+
+    @Test public void usersAndGroupsComparedByTheirOwnStrategy() {
+        SubmitterMatcher matcher = new SubmitterMatcher("alice,Ops", new IdStrategy.CaseSensitive(), IdStrategy.CASE_INSENSITIVE);
+        assertFalse(matcher.matches(user("ALICE")));
+        assertTrue(matcher.matches(user("bob", "OPS")));
+    }
+
+    private static Authentication user(String name, String... groups) {
+        return new UsernamePasswordAuthenticationToken(name, "", Arrays.stream(groups).map(SimpleGrantedAuthority::new).toList());
+    }
+}
@@ -0,0 +1,76 @@
+package org.jenkinsci.plugins.workflow.support.steps.input;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.Test;
+
+public class TimerWheelTest {
+
+    private static List<String> items(List<TimerWheel.Entry<String>> entries) {
+        List<String> items = new ArrayList<>();
+        for (TimerWheel.Entry<String> entry : entries) {
+            items.add(entry.item);
+        }
+        return items;
+    }
+
+    @Test public void expiresInOrder() {
+        TimerWheel<String> wheel = new TimerWheel<>(1000, 0);
+        wheel.schedule("c", 30_000);
+        wheel.schedule("a", 1_500);
+        wheel.schedule("b", 2_000);
+        assertEquals(List.of(), items(wheel.advance(999)));
+        assertEquals(List.of("a", "b"), items(wheel.advance(2_000)));
+        assertEquals(List.of(), items(wheel.advance(29_999)));
+        assertEquals(List.of("c"), items(wheel.advance(30_000)));
+    }
+
+    @Test public void pastDeadlineExpiresAtNextTick() {
+        TimerWheel<String> wheel = new TimerWheel<>(1000, 10_000);
+        wheel.schedule("late", 0);
+        assertEquals(List.of("late"), items(wheel.advance(11_000)));
+    }
+
+    @Test public void cancel() {
+        TimerWheel<String> wheel = new TimerWheel<>(1000, 0);
+        TimerWheel.Entry<String> near = wheel.schedule("near", 5_000);
+        TimerWheel.Entry<String> far = wheel.schedule("far", 5_000_000);
+        wheel.schedule("kept", 5_000_000);
+        near.cancel();
+        far.cancel();
+        assertEquals(List.of("kept"), items(wheel.advance(5_000_000)));
+    }
+
+    @Test public void cascadesThroughEveryLevel() {
+        int levels = TimerWheel.LEVELS;
+        long span = 1;
+        for (int i = 0; i < levels; i++) {
+            span *= TimerWheel.SLOTS;
+        }
+        Random random = new Random(42);
+        TimerWheel<Long> wheel = new TimerWheel<>(1, 0);
+        List<Long> deadlines = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            // some beyond the highest level, to exercise the overflow list
+            long deadline = 1 + (long) (random.nextDouble() * span * 1.5);
+            deadlines.add(deadline);
+            wheel.schedule(deadline, deadline);
+        }
+        deadlines.sort(null);
+        List<Long> expired = new ArrayList<>();
+        long now = 0;
+        while (expired.size() < deadlines.size()) {
+            now += 1 + random.nextInt(100_000);
+            for (TimerWheel.Entry<Long> entry : wheel.advance(now)) {
+                assertTrue("expired at " + now + " but due at " + entry.item, entry.item <= now);
+                assertTrue("due at " + entry.item + " but expired late at " + now, entry.item > now - 100_001);
+                expired.add(entry.item);
+            }
+        }
+        assertEquals(deadlines, expired);
+    }
+}